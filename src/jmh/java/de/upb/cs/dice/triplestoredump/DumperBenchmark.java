@@ -0,0 +1,131 @@
+package de.upb.cs.dice.triplestoredump;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aksw.jena_sparql_api.core.QueryExecutionFactoryDataset;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.RDF;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the {@link Dumper} against an in-memory {@link SyntheticCatalog}, no triple store needed.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="DumperBenchmark.construct -p dataSets=50000 -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DumperBenchmark {
+
+    @Param("20000")
+    private int dataSets;
+
+    @Param("3")
+    private int distributions;
+
+    @Param("2000")
+    private int duplicateTitles;
+
+    @Param("10")
+    private int portals;
+
+    @Param("5000")
+    private int pageSize;
+
+    @Param({"turtle", "ntriples", "rdf_thrift"})
+    private String outputFormat;
+
+    private Dumper dumper;
+
+    private List<Resource> firstPage;
+
+    private Resource lastOfFirstPage;
+
+    private List<Model> graphsOfPage;
+
+    private PageFiles pageFiles;
+
+    private File folder;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Dataset dataset = SyntheticCatalog.create(dataSets, distributions, duplicateTitles, portals);
+        dumper = new Dumper(null, new DumperMetrics(new SimpleMeterRegistry()), new DumpTracer(0, 1),
+                new QueryExecutionFactoryDataset(dataset));
+
+        firstPage = dumper.getListOfDataSets(0, pageSize);
+        lastOfFirstPage = firstPage.get(firstPage.size() - 1);
+        graphsOfPage = new ArrayList<>(firstPage.size());
+        for (Resource dataSet : firstPage)
+            graphsOfPage.add(dumper.getAllPredicatesObjectsPublisherDistributions(dataSet));
+
+        folder = Files.createTempDirectory("dumper-benchmark").toFile();
+        pageFiles = new PageFiles(folder, "http://localhost:8000", OutputFormat.fromName(outputFormat), OutputCodec.NONE, -1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = folder.listFiles();
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        folder.delete();
+    }
+
+    @Benchmark
+    public List<Resource> listPageOffset() {
+        return dumper.getListOfDataSets(pageSize, pageSize);
+    }
+
+    @Benchmark
+    public List<Resource> listPageKeyset() {
+        return dumper.getListOfDataSetsAfter(lastOfFirstPage, pageSize);
+    }
+
+    @Benchmark
+    public Model construct() {
+        Resource dataSet = firstPage.get(next);
+        next = (next + 1) % firstPage.size();
+        return dumper.getAllPredicatesObjectsPublisherDistributions(dataSet);
+    }
+
+    @Benchmark
+    public TitleIndex titleIndex() {
+        return dumper.getTitleIndex();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public long writePage() throws IOException {
+        Resource portal = ResourceFactory.createResource(SyntheticCatalog.BASE + "portal/portal0");
+        try (PageWriter page = pageFiles.createWriter(1, Collections.singletonMap("dcat", DCAT.NS))) {
+            page.add(portal, RDF.type, DCAT.Catalog);
+            for (int i = 0; i < graphsOfPage.size(); i++) {
+                page.add(graphsOfPage.get(i));
+                page.add(portal, DCAT.dataset, firstPage.get(i));
+            }
+            page.finish();
+        }
+        return pageFiles.getFile(1).length();
+    }
+}
@@ -0,0 +1,43 @@
+package de.upb.cs.dice.triplestoredump;
+
+/**
+ * Number of dataSets asked per graph query, adapted to the measured responses: the size whose response would
+ * take about the target latency and stay under the triple limit, moved half way from the current size.
+ */
+class AdaptiveBatchSize {
+
+    private final int min;
+
+    private final int max;
+
+    private final long targetNanos;
+
+    private final long maxTriples;
+
+    private volatile int size;
+
+    AdaptiveBatchSize(int initial, int min, int max, long targetNanos, long maxTriples) {
+        this.min = min;
+        this.max = Math.max(min, max);
+        this.targetNanos = targetNanos;
+        this.maxTriples = maxTriples;
+        this.size = clamp(initial);
+    }
+
+    int get() {
+        return size;
+    }
+
+    synchronized void record(int dataSets, long nanos, long triples) {
+        if (dataSets <= 0)
+            return;
+        double ideal = (double) targetNanos * dataSets / Math.max(nanos, 1);
+        if (triples > 0)
+            ideal = Math.min(ideal, (double) maxTriples * dataSets / triples);
+        size = clamp((int) Math.round((size + Math.min(ideal, Integer.MAX_VALUE)) / 2));
+    }
+
+    private int clamp(int value) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
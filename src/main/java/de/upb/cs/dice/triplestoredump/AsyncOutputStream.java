@@ -0,0 +1,131 @@
+package de.upb.cs.dice.triplestoredump;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Collects the written bytes in buffers which a thread of its own writes to the wrapped stream, so a slow stream
+ * (e.g. compression) runs next to the writer instead of stalling it. At most QUEUE_CAPACITY buffers are waiting,
+ * after that the writer waits for the stream.
+ */
+public class AsyncOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int QUEUE_CAPACITY = 16;
+
+    private static final byte[] END = new byte[0];
+
+    private final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final OutputStream out;
+
+    private final Thread drainer;
+
+    private volatile IOException failure;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int count;
+
+    private boolean closed;
+
+    public AsyncOutputStream(OutputStream out, String threadName) {
+        this.out = out;
+        drainer = new Thread(this::drain, threadName);
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    private void drain() {
+        try {
+            for (byte[] bytes = buffers.take(); bytes != END; bytes = buffers.take()) {
+                //after a failure the buffers are only taken, so the writer is not blocked forever
+                if (failure == null) {
+                    try {
+                        out.write(bytes);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("writing " + drainer.getName() + " is interrupted");
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer[count++] = (byte) b;
+        if (count == buffer.length)
+            pass(buffer);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == buffer.length)
+                pass(buffer);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkFailure();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        if (count > 0)
+            pass(Arrays.copyOf(buffer, count));
+        put(END);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("waiting for " + drainer.getName() + " is interrupted");
+        }
+        checkFailure();
+    }
+
+    private void pass(byte[] bytes) throws IOException {
+        checkFailure();
+        put(bytes);
+        buffer = new byte[BUFFER_SIZE];
+        count = 0;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        try {
+            buffers.put(bytes);
+        } catch (InterruptedException e) {
+            drainer.interrupt();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("writing to " + drainer.getName() + " is interrupted");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null)
+            throw failure;
+    }
+}
@@ -0,0 +1,34 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+
+/**
+ * Everything that is fetched from the triple store for one dataSet before it is written to a page.
+ */
+public class DataSetGraph {
+
+    private final Resource dataSet;
+
+    private final Resource portal;
+
+    private final Model graph;
+
+    public DataSetGraph(Resource dataSet, Resource portal, Model graph) {
+        this.dataSet = dataSet;
+        this.portal = portal;
+        this.graph = graph;
+    }
+
+    public Resource getDataSet() {
+        return dataSet;
+    }
+
+    public Resource getPortal() {
+        return portal;
+    }
+
+    public Model getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,172 @@
+package de.upb.cs.dice.triplestoredump;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of an unfinished dump, written after every page so a failed dump can continue at the first page that
+ * is not written. It is only used if the catalog, the title index and the settings are still the same and the
+ * interrupted dump is not older than dumper.resume.maxAge.
+ */
+public class DumpCheckpoint {
+    private static final Logger logger = LoggerFactory.getLogger(DumpCheckpoint.class);
+
+    static final String FILE_NAME = ".dump-checkpoint.json";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * epoch millis, when the interrupted dump wrote its first page
+     */
+    private long startedAt;
+
+    private long totalNumberOfDataSets;
+
+    private String settingsFingerprint;
+
+    private String titleIndexFingerprint;
+
+    private int pagesDone;
+
+    /**
+     * listed dataSets up to the last dataSet of the last written page, where the listing continues
+     */
+    private long dataSetsDone;
+
+    /**
+     * last dataSet of the last written page, where keyset paging continues
+     */
+    private String lastDataSet;
+
+    /**
+     * manifest entries of the written pages (incremental dumps)
+     */
+    private Map<Integer, DumpManifest.Page> pages = new HashMap<>();
+
+    /**
+     * dataSets of the written pages (pages with a budget), for the pagination info added after the dump
+     */
+    private List<Long> itemsOfPages = new ArrayList<>();
+
+    /**
+     * all pages are written and have their pagination info (portal layout, the checkpoint of a finished portal is
+     * kept until all portals are written)
+     */
+    private boolean finished;
+
+    /**
+     * @return null if there is no (readable) checkpoint
+     */
+    public static DumpCheckpoint load(File file) {
+        if (!file.isFile())
+            return null;
+        try {
+            return objectMapper.readValue(file, DumpCheckpoint.class);
+        } catch (IOException e) {
+            logger.warn("Cannot read the checkpoint {}, the dump starts from the first page, {}", file, e);
+            return null;
+        }
+    }
+
+    public void save(File file) throws IOException {
+        File temporaryFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        objectMapper.writeValue(temporaryFile, this);
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public boolean isResumableWith(long totalNumberOfDataSets, String settingsFingerprint, String titleIndexFingerprint) {
+        return this.totalNumberOfDataSets == totalNumberOfDataSets
+                && settingsFingerprint.equals(this.settingsFingerprint)
+                && titleIndexFingerprint.equals(this.titleIndexFingerprint);
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getTotalNumberOfDataSets() {
+        return totalNumberOfDataSets;
+    }
+
+    public void setTotalNumberOfDataSets(long totalNumberOfDataSets) {
+        this.totalNumberOfDataSets = totalNumberOfDataSets;
+    }
+
+    public String getSettingsFingerprint() {
+        return settingsFingerprint;
+    }
+
+    public void setSettingsFingerprint(String settingsFingerprint) {
+        this.settingsFingerprint = settingsFingerprint;
+    }
+
+    public String getTitleIndexFingerprint() {
+        return titleIndexFingerprint;
+    }
+
+    public void setTitleIndexFingerprint(String titleIndexFingerprint) {
+        this.titleIndexFingerprint = titleIndexFingerprint;
+    }
+
+    public int getPagesDone() {
+        return pagesDone;
+    }
+
+    public void setPagesDone(int pagesDone) {
+        this.pagesDone = pagesDone;
+    }
+
+    public long getDataSetsDone() {
+        return dataSetsDone;
+    }
+
+    public void setDataSetsDone(long dataSetsDone) {
+        this.dataSetsDone = dataSetsDone;
+    }
+
+    public String getLastDataSet() {
+        return lastDataSet;
+    }
+
+    public void setLastDataSet(String lastDataSet) {
+        this.lastDataSet = lastDataSet;
+    }
+
+    public Map<Integer, DumpManifest.Page> getPages() {
+        return pages;
+    }
+
+    public void setPages(Map<Integer, DumpManifest.Page> pages) {
+        this.pages = pages;
+    }
+
+    public List<Long> getItemsOfPages() {
+        return itemsOfPages;
+    }
+
+    public void setItemsOfPages(List<Long> itemsOfPages) {
+        this.itemsOfPages = itemsOfPages;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+}
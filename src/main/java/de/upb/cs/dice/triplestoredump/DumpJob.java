@@ -0,0 +1,157 @@
+package de.upb.cs.dice.triplestoredump;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One run of {@link Dumper#dump(DumpJob)} or {@link Dumper#merge} and its progress, the getters are what the status
+ * endpoint reports.
+ */
+public class DumpJob {
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    public enum Kind {
+        DUMP, MERGE
+    }
+
+    private final String id = UUID.randomUUID().toString();
+
+    private final Kind kind;
+
+    private final long submittedAt = System.currentTimeMillis();
+
+    private volatile State state = State.QUEUED;
+
+    private volatile long startedAt;
+
+    private volatile long finishedAt;
+
+    private volatile String error;
+
+    private volatile boolean cancelRequested;
+
+    private volatile long pagesTotal;
+
+    private volatile long dataSetsTotal;
+
+    private final AtomicLong pagesDone = new AtomicLong();
+
+    private final AtomicLong dataSetsDone = new AtomicLong();
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public DumpJob() {
+        this(Kind.DUMP);
+    }
+
+    public DumpJob(Kind kind) {
+        this.kind = kind;
+    }
+
+    void started() {
+        startedAt = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void finished(State state, String error) {
+        this.error = error;
+        finishedAt = System.currentTimeMillis();
+        this.state = state;
+    }
+
+    void setTotals(long pagesTotal, long dataSetsTotal) {
+        this.pagesTotal = pagesTotal;
+        this.dataSetsTotal = dataSetsTotal;
+    }
+
+    /**
+     * @param dataSets number of listed dataSets of the page, including the ones that are not written
+     */
+    void pageDone(long dataSets, long bytes) {
+        dataSetsDone.addAndGet(dataSets);
+        bytesWritten.addAndGet(bytes);
+        pagesDone.incrementAndGet();
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public boolean isDone() {
+        return state == State.SUCCEEDED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getPagesTotal() {
+        return pagesTotal;
+    }
+
+    public long getPagesDone() {
+        return pagesDone.get();
+    }
+
+    public long getDataSetsTotal() {
+        return dataSetsTotal;
+    }
+
+    public long getDataSetsDone() {
+        return dataSetsDone.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public double getDataSetsPerSecond() {
+        long elapsed = (finishedAt == 0 ? System.currentTimeMillis() : finishedAt) - startedAt;
+        if (startedAt == 0 || elapsed <= 0)
+            return 0;
+        return dataSetsDone.get() * 1000.0 / elapsed;
+    }
+
+    /**
+     * @return estimated seconds until the dump is done, -1 => unknown
+     */
+    public long getEtaSeconds() {
+        if (isDone())
+            return 0;
+        double dataSetsPerSecond = getDataSetsPerSecond();
+        if (dataSetsPerSecond <= 0 || dataSetsTotal == 0)
+            return -1;
+        return (long) ((dataSetsTotal - dataSetsDone.get()) / dataSetsPerSecond);
+    }
+}
@@ -0,0 +1,72 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/dump/jobs")
+public class DumpJobController {
+
+    private final DumpJobService dumpJobService;
+
+    @Autowired
+    public DumpJobController(DumpJobService dumpJobService) {
+        this.dumpJobService = dumpJobService;
+    }
+
+    /**
+     * Starts a dump, or returns the running one. CONFLICT with the running merge if a merge runs.
+     */
+    @PostMapping
+    public ResponseEntity<DumpJob> submit() {
+        return accepted(dumpJobService.submit());
+    }
+
+    /**
+     * Merges the output folders of the shards into the output folder, the files must be reachable from this node.
+     * Only folders of dumper.shard.folders are merged, no folder => all of them.
+     * CONFLICT with the running job if a dump or merge runs.
+     */
+    @PostMapping("/merge")
+    public ResponseEntity<DumpJob> merge(@RequestParam(required = false) List<String> shardFolders) {
+        if (shardFolders == null)
+            shardFolders = Collections.emptyList();
+        List<File> folders = new ArrayList<>();
+        for (String shardFolder : shardFolders)
+            folders.add(new File(shardFolder));
+        return accepted(dumpJobService.submitMerge(folders));
+    }
+
+    /**
+     * @param submitted empty => the job was not submitted because of the running job
+     */
+    private ResponseEntity<DumpJob> accepted(Optional<DumpJob> submitted) {
+        return submitted.map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).body(dumpJobService.getCurrent().orElse(null)));
+    }
+
+    @GetMapping
+    public List<DumpJob> getJobs() {
+        return dumpJobService.getJobs();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<DumpJob> getJob(@PathVariable String id) {
+        return dumpJobService.get(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<DumpJob> cancel(@PathVariable String id) {
+        if (!dumpJobService.cancel(id))
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(dumpJobService.get(id).orElse(null));
+        return ResponseEntity.accepted().body(dumpJobService.get(id).orElse(null));
+    }
+}
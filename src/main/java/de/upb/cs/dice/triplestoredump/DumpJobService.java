@@ -0,0 +1,143 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the dumps and merges in the background, one at a time. Submitting a dump while a dump is queued or running
+ * returns that dump instead of starting another one, so concurrent triggers never write the same files. A merge is
+ * only submitted if no job is queued or running, it would write the pages a dump writes.
+ */
+@Service
+public class DumpJobService {
+    private static final Logger logger = LoggerFactory.getLogger(DumpJobService.class);
+
+    private static final int KEPT_JOBS = 20;
+
+    private final Dumper dumper;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "dump-job"));
+
+    /**
+     * the latest jobs by id, the oldest finished ones are forgotten
+     */
+    private final Map<String, DumpJob> jobs = new LinkedHashMap<String, DumpJob>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DumpJob> eldest) {
+            return size() > KEPT_JOBS && eldest.getValue().isDone();
+        }
+    };
+
+    private DumpJob current;
+
+    private Future<?> currentFuture;
+
+    @Autowired
+    public DumpJobService(Dumper dumper) {
+        this.dumper = dumper;
+    }
+
+    /**
+     * @return the submitted dump or the one that is queued or running, empty if a merge is queued or running
+     */
+    public synchronized Optional<DumpJob> submit() {
+        if (current != null && !current.isDone()) {
+            if (current.getKind() != DumpJob.Kind.DUMP) {
+                logger.info("{} {} is {}, no dump is started", current.getKind(), current.getId(), current.getState());
+                return Optional.empty();
+            }
+            logger.info("dump {} is already {}, no new dump is started", current.getId(), current.getState());
+            return Optional.of(current);
+        }
+        return Optional.of(submit(DumpJob.Kind.DUMP, dumper::dump));
+    }
+
+    /**
+     * Merges the pages of the given shard output folders into the output folder, see {@link Dumper#merge}.
+     *
+     * @return empty if a dump or merge is queued or running
+     */
+    public synchronized Optional<DumpJob> submitMerge(List<File> shardFolders) {
+        if (current != null && !current.isDone()) {
+            logger.info("{} {} is {}, no merge is started", current.getKind(), current.getId(), current.getState());
+            return Optional.empty();
+        }
+        return Optional.of(submit(DumpJob.Kind.MERGE, job -> dumper.merge(shardFolders, job)));
+    }
+
+    /**
+     * @return the job that is queued or running
+     */
+    public synchronized Optional<DumpJob> getCurrent() {
+        return current == null || current.isDone() ? Optional.empty() : Optional.of(current);
+    }
+
+    private DumpJob submit(DumpJob.Kind kind, Task task) {
+        DumpJob job = new DumpJob(kind);
+        jobs.put(job.getId(), job);
+        current = job;
+        currentFuture = executor.submit(() -> run(job, task));
+        logger.info("{} {} is submitted", kind, job.getId());
+        return job;
+    }
+
+    private void run(DumpJob job, Task task) {
+        if (job.isCancelRequested()) {
+            job.finished(DumpJob.State.CANCELLED, null);
+            return;
+        }
+        job.started();
+        try {
+            task.run(job);
+            job.finished(DumpJob.State.SUCCEEDED, null);
+            logger.info("dump {} is done", job.getId());
+        } catch (InterruptedException | CancellationException e) {
+            job.finished(DumpJob.State.CANCELLED, null);
+            logger.info("dump {} is cancelled", job.getId());
+        } catch (Exception e) {
+            job.finished(job.isCancelRequested() ? DumpJob.State.CANCELLED : DumpJob.State.FAILED, e.toString());
+            logger.error("{}", e);
+        }
+    }
+
+    public synchronized Optional<DumpJob> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public synchronized List<DumpJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * @return false => there is no such job or it is already done
+     */
+    public synchronized boolean cancel(String id) {
+        DumpJob job = jobs.get(id);
+        if (job == null || job.isDone())
+            return false;
+        job.requestCancel();
+        //a job that has not started yet is never run after cancelling its future
+        if (job == current && currentFuture.cancel(true) && job.getState() == DumpJob.State.QUEUED)
+            job.finished(DumpJob.State.CANCELLED, null);
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private interface Task {
+        void run(DumpJob job) throws Exception;
+    }
+}
@@ -0,0 +1,154 @@
+package de.upb.cs.dice.triplestoredump;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What was written to every page file by the last dump, used by incremental dumps to find the pages that have to
+ * be written again. The content fingerprint covers the dataSets of the page (IRI, dct:modified and generated
+ * title), the header fingerprint covers the pagination info. The manifest of a shard has only the pages of that shard,
+ * but the page of every dataSet, so the next dump of each shard assigns the dataSets to the same pages.
+ * A manifest only describes the pages if it was written with the same settings, a dump that writes the pages
+ * without a manifest deletes it.
+ */
+public class DumpManifest {
+    private static final Logger logger = LoggerFactory.getLogger(DumpManifest.class);
+
+    static final String FILE_NAME = ".dump-manifest.json";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * layout, format, page boundary and graph scope of the dump that wrote the pages
+     */
+    private Map<String, String> settings = new TreeMap<>();
+
+    private long totalNumberOfDataSets;
+
+    private int numberOfPages;
+
+    private Map<Integer, Page> pages = new HashMap<>();
+
+    /**
+     * page of every dataSet IRI (incremental dumps), see {@link PageAssignment}
+     */
+    private Map<String, Integer> pageOfDataSet = new HashMap<>();
+
+    /**
+     * @return an empty manifest if there is no (readable) manifest file
+     */
+    public static DumpManifest load(File file) {
+        if (!file.isFile())
+            return new DumpManifest();
+        try {
+            return objectMapper.readValue(file, DumpManifest.class);
+        } catch (IOException e) {
+            logger.warn("Cannot read the manifest {}, all pages will be written, {}", file, e);
+            return new DumpManifest();
+        }
+    }
+
+    /**
+     * @param settings the settings of the current dump
+     * @return the manifest of the file if it was written with the same settings, o.w. an empty manifest
+     */
+    public static DumpManifest load(File file, Map<String, String> settings) {
+        DumpManifest manifest = load(file);
+        if (manifest.getSettings().equals(settings))
+            return manifest;
+        if (file.isFile())
+            logger.info("The manifest {} was written with the settings {}, all pages will be written", file,
+                    manifest.getSettings());
+        DumpManifest empty = new DumpManifest();
+        empty.setSettings(settings);
+        return empty;
+    }
+
+    /**
+     * The manifest is written to a temporary file first, so an interrupted save leaves the previous manifest.
+     */
+    public void save(File file) throws IOException {
+        File temporaryFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        objectMapper.writeValue(temporaryFile, this);
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public Map<String, String> getSettings() {
+        return settings;
+    }
+
+    public void setSettings(Map<String, String> settings) {
+        this.settings = settings;
+    }
+
+    public long getTotalNumberOfDataSets() {
+        return totalNumberOfDataSets;
+    }
+
+    public void setTotalNumberOfDataSets(long totalNumberOfDataSets) {
+        this.totalNumberOfDataSets = totalNumberOfDataSets;
+    }
+
+    public int getNumberOfPages() {
+        return numberOfPages;
+    }
+
+    public void setNumberOfPages(int numberOfPages) {
+        this.numberOfPages = numberOfPages;
+    }
+
+    public Map<Integer, Page> getPages() {
+        return pages;
+    }
+
+    public void setPages(Map<Integer, Page> pages) {
+        this.pages = pages;
+    }
+
+    public Map<String, Integer> getPageOfDataSet() {
+        return pageOfDataSet;
+    }
+
+    public void setPageOfDataSet(Map<String, Integer> pageOfDataSet) {
+        this.pageOfDataSet = pageOfDataSet;
+    }
+
+    public static class Page {
+        private String contentFingerprint;
+
+        private String headerFingerprint;
+
+        public Page() {
+        }
+
+        public Page(String contentFingerprint, String headerFingerprint) {
+            this.contentFingerprint = contentFingerprint;
+            this.headerFingerprint = headerFingerprint;
+        }
+
+        public String getContentFingerprint() {
+            return contentFingerprint;
+        }
+
+        public void setContentFingerprint(String contentFingerprint) {
+            this.contentFingerprint = contentFingerprint;
+        }
+
+        public String getHeaderFingerprint() {
+            return headerFingerprint;
+        }
+
+        public void setHeaderFingerprint(String headerFingerprint) {
+            this.headerFingerprint = headerFingerprint;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sampled spans of the dump, kept in a ring buffer of the last `bufferSize` spans and served by
+ * {@link TraceController}. A span that is not sampled costs one random number; a recorded one is an allocation and
+ * an array store, the arguments are only formatted if DEBUG is on.
+ */
+@Component
+public class DumpTracer {
+    private static final Logger logger = LoggerFactory.getLogger(DumpTracer.class);
+
+    /**
+     * Returned by {@link #start()} if the span is not sampled.
+     */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final double sampleRate;
+
+    private final AtomicReferenceArray<Span> spans;
+
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * @param sampleRate share of the sampled spans, 0 => off, 1 => every span
+     * @param bufferSize number of the last spans kept
+     */
+    @Autowired
+    public DumpTracer(@Value("${dumper.trace.sampleRate:0.01}") double sampleRate,
+                      @Value("${dumper.trace.bufferSize:4096}") int bufferSize) {
+        this.sampleRate = sampleRate;
+        this.spans = new AtomicReferenceArray<>(Math.max(1, bufferSize));
+    }
+
+    /**
+     * @return the start time of a sampled span, o.w. {@link #NOT_SAMPLED}
+     */
+    public long start() {
+        if (sampleRate <= 0)
+            return NOT_SAMPLED;
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)
+            return NOT_SAMPLED;
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the span, callers of {@link #start()} only call it if the span is sampled.
+     *
+     * @param target  e.g. the page number or the first dataSet of a chunk
+     * @param items   dataSets of the target
+     * @param results triples of the target
+     */
+    public void record(String kind, Object target, long items, long results, long nanos) {
+        long sequence = next.getAndIncrement();
+        Span span = new Span(sequence, System.currentTimeMillis() - nanos / 1_000_000, kind, String.valueOf(target),
+                items, results, nanos, Thread.currentThread().getName());
+        spans.set((int) (sequence % spans.length()), span);
+        if (logger.isDebugEnabled())
+            logger.debug("{} {}: {} items, {} results, {} ms", kind, target, items, results, nanos / 1_000_000);
+    }
+
+    /**
+     * @return the buffered spans, oldest first
+     */
+    public List<Span> getSpans() {
+        List<Span> ret = new ArrayList<>(spans.length());
+        for (int i = 0; i < spans.length(); i++) {
+            Span span = spans.get(i);
+            if (span != null)
+                ret.add(span);
+        }
+        ret.sort(Comparator.comparingLong(Span::getSequence));
+        return ret;
+    }
+
+    public void clear() {
+        for (int i = 0; i < spans.length(); i++)
+            spans.set(i, null);
+    }
+
+    public static class Span {
+        private final long sequence;
+        private final long startedAt;
+        private final String kind;
+        private final String target;
+        private final long items;
+        private final long results;
+        private final long durationNanos;
+        private final String thread;
+
+        private Span(long sequence, long startedAt, String kind, String target, long items, long results,
+                     long durationNanos, String thread) {
+            this.sequence = sequence;
+            this.startedAt = startedAt;
+            this.kind = kind;
+            this.target = target;
+            this.items = items;
+            this.results = results;
+            this.durationNanos = durationNanos;
+            this.thread = thread;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Epoch millis.
+         */
+        public long getStartedAt() {
+            return startedAt;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        public long getItems() {
+            return items;
+        }
+
+        public long getResults() {
+            return results;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+    }
+}
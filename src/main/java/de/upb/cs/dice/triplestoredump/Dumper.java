@@ -1,18 +1,27 @@
 package de.upb.cs.dice.triplestoredump;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.ImmutableMap;
-import org.aksw.jena_sparql_api.http.QueryExecutionFactoryHttp;
-import org.aksw.jena_sparql_api.retry.core.QueryExecutionFactoryRetry;
+import com.google.common.collect.ImmutableSet;
+import de.upb.cs.dice.triplestoredump.DumperMetrics.QueryKind;
+import org.aksw.jena_sparql_api.core.QueryExecutionFactoryDataset;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.jena.query.ParameterizedSparqlString;
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QuerySolution;
-import org.apache.jena.query.ResultSet;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.*;
+import org.apache.jena.sparql.util.FmtUtils;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
 import org.apache.jena.vocabulary.DCAT;
 import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.RDF;
@@ -24,10 +33,15 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.io.FileWriter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 @EnableScheduling
@@ -42,156 +56,1212 @@ public class Dumper implements CredentialsProvider {
 
     private static final int PAGE_SIZE = 5000;
 
+    /**
+     * objects of these predicates are shared by many dataSets, only their descriptions are cached
+     */
+    private static final Set<Node> SHARED_PREDICATES = ImmutableSet.of(DCTerms.publisher.asNode(), DCTerms.license.asNode());
+
     @Value("${output.folderPath}")
     private String folderPath;
 
     @Value("${internalFileServer.address}")
     private String serverAddress;
 
-    private org.aksw.jena_sparql_api.core.QueryExecutionFactory qef;
+    private Function<Query, QueryExecution> queryExecutions;
     @Value("${tripleStore.url}")
     private String tripleStoreURL;
     @Value("${tripleStore.username}")
     private String tripleStoreUsername;
     @Value("${tripleStore.password}")
     private String tripleStorePassword;
+    /**
+     * pooled connections to the triple store, 0 => one for each graph fetcher and one for listing the pages
+     */
+    @Value("${tripleStore.http.maxConnections:0}")
+    private int maxConnections;
+    /**
+     * ms an idle connection is kept, if the store does not send a shorter Keep-Alive timeout
+     */
+    @Value("${tripleStore.http.keepAlive:30000}")
+    private long keepAlive;
+    /**
+     * ask for gzip/deflate compressed results
+     */
+    @Value("${tripleStore.http.compression:true}")
+    private boolean compression;
+    @Value("${tripleStore.http.connectTimeout:10000}")
+    private int connectTimeout;
+    /**
+     * ms without data from the store, 0 => no timeout
+     */
+    @Value("${tripleStore.http.readTimeout:600000}")
+    private int readTimeout;
+    /**
+     * Accept header of SELECT queries
+     */
+    @Value("${tripleStore.http.selectFormat:application/sparql-results+thrift,application/sparql-results+json;q=0.9,application/sparql-results+xml;q=0.8}")
+    private String selectFormat;
+    /**
+     * Accept header of CONSTRUCT queries
+     */
+    @Value("${tripleStore.http.constructFormat:application/rdf+thrift,application/n-triples;q=0.9,text/turtle;q=0.8}")
+    private String constructFormat;
+    /**
+     * attempts of a failing query after the first one
+     */
+    @Value("${tripleStore.retry.attempts:5}")
+    private int retries;
+    /**
+     * ms before the first retry, doubled for every further retry up to retry.maxDelay, each with a random jitter
+     */
+    @Value("${tripleStore.retry.initialDelay:500}")
+    private long retryInitialDelay;
+    @Value("${tripleStore.retry.maxDelay:30000}")
+    private long retryMaxDelay;
+    /**
+     * directory of a local TDB2 database, queried in-process instead of tripleStore.url when it is set
+     */
+    @Value("${tripleStore.tdb2Location:}")
+    private String tdb2Location;
+    /**
+     * with a local TDB2 database: read the dataSet graphs from the quad indexes instead of running the CONSTRUCT
+     */
+    @Value("${dumper.tdb2.directGraphs:true}")
+    private boolean directGraphs;
     @Value("${dumper.pagination}")
     private String addPaginationInfo;
+    /**
+     * number of dataSets whose portal, graph and title are fetched together, 1 => one request per dataSet
+     */
+    @Value("${dumper.batchSize:1}")
+    private int batchSize;
+    /**
+     * offset => ORDER BY/OFFSET paging, keyset => resume each page after the last dataSet of the previous page
+     */
+    @Value("${dumper.paging:offset}")
+    private String pagingMode;
+    /**
+     * whether the counters of the repetitive titles are stored in the InfoDataSet table
+     */
+    @Value("${dumper.titleIndex.persist:true}")
+    private boolean persistTitleIndex;
+    /**
+     * counters saved per transaction, the same as the JDBC batch size of hibernate
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int jpaBatchSize;
+    /**
+     * turtle (one model per page), turtle_blocks, ntriples or rdf_thrift (streamed)
+     */
+    @Value("${dumper.output.format:turtle}")
+    private String outputFormat;
+    /**
+     * all pages are also joined into one catalog file
+     */
+    @Value("${dumper.output.catalog:false}")
+    private boolean catalogFile;
+    /**
+     * only pages whose dataSets are new or have a newer dct:modified are fetched and written, the dataSets keep the
+     * page of the previous dump (see {@link PageAssignment})
+     */
+    @Value("${dumper.incremental:false}")
+    private boolean incremental;
+    /**
+     * continue an interrupted dump at its first unwritten page
+     */
+    @Value("${dumper.resume:true}")
+    private boolean resume;
+    /**
+     * minutes, an interrupted dump that started earlier is not continued, its pages are too old to be mixed with new ones
+     */
+    @Value("${dumper.resume.maxAge:1440}")
+    private long resumeMaxAge;
+    /**
+     * none, gzip or zstd
+     */
+    @Value("${dumper.output.compression:none}")
+    private String outputCompression;
+    /**
+     * negative => default level of the codec
+     */
+    @Value("${dumper.output.compressionLevel:-1}")
+    private int compressionLevel;
+    /**
+     * number of threads fetching dataSet graphs at the same time, the chunks in flight are limited by it
+     */
+    @Value("${dumper.parallelism:1}")
+    private int parallelism;
+    /**
+     * empty => GRAPH ?g over all graphs, discover => the graphs linking portals and dataSets, o.w. comma separated
+     * graph IRIs. A scope binds ?g in every query, the graph of a dataSet has its triples of all graphs of the scope.
+     */
+    @Value("${dumper.graphs:}")
+    private String graphs;
+    /**
+     * number of dumper instances sharing the catalog, page n belongs to the shard (n - 1) % shard.count
+     */
+    @Value("${dumper.shard.count:1}")
+    private int shardCount;
+    /**
+     * shard of this instance, 0 ... shard.count - 1
+     */
+    @Value("${dumper.shard.index:0}")
+    private int shardIndex;
+    /**
+     * comma separated output folders of the shards, the only folders a merge reads and deletes pages from
+     */
+    @Value("${dumper.shard.folders:}")
+    private String shardFolders;
+    /**
+     * pages => one paged collection of all dataSets, portals => one paged collection per portal in a folder named
+     * after the portal, the portals are written one after the other by the same stages, and an index of the portals
+     */
+    @Value("${dumper.layout:pages}")
+    private String layout;
+    /**
+     * > 0 => a page ends after the dataSet that reaches this number of triples, instead of after PAGE_SIZE dataSets
+     */
+    @Value("${dumper.page.maxTriples:0}")
+    private long pageMaxTriples;
+    /**
+     * > 0 => a page ends after the dataSet that reaches this number of serialized (uncompressed) bytes, only
+     * streaming formats are serialized while the page is written, so the dump refuses it with the others
+     */
+    @Value("${dumper.page.maxBytes:0}")
+    private long pageMaxBytes;
+    /**
+     * with a page budget: the graph queries ask as many dataSets as are expected to be answered in this time (ms)
+     */
+    @Value("${dumper.batch.targetLatency:2000}")
+    private long batchTargetLatency;
+    /**
+     * with a page budget: ... and as are expected to have at most this number of triples
+     */
+    @Value("${dumper.batch.maxTriples:100000}")
+    private long batchMaxTriples;
+    @Value("${dumper.batch.max:1000}")
+    private int batchMax;
+    /**
+     * triples of the cached descriptions of publishers and licenses, which many dataSets share, 0 => no cache
+     */
+    @Value("${dumper.cache.maxTriples:0}")
+    private long cacheMaxTriples;
     private org.apache.http.auth.Credentials credentials;
 
+    private Dataset localDataset;
+
+    private QuadIndexGraphs quadIndexGraphs;
+
+    /**
+     * graphs of the current dump, empty => not scoped
+     */
+    private List<Resource> scopeGraphs = Collections.emptyList();
+
+    /**
+     * pagination info of the pages of the current dump or merge
+     */
+    private PaginationInfo paginationInfo;
+
+    /**
+     * (graph, object) => the triples of the object in that graph, the second hop of the dataSet graphs
+     */
+    private Cache<List<Node>, List<Triple>> descriptions;
+
     private final InfoDataSetRepository infoDataSetRepository;
 
+    private final DumperMetrics metrics;
+
+    private final DumpTracer tracer;
+
     @Autowired
-    public Dumper(InfoDataSetRepository infoDataSetRepository) {
+    public Dumper(InfoDataSetRepository infoDataSetRepository, DumperMetrics metrics, DumpTracer tracer) {
         this.infoDataSetRepository = infoDataSetRepository;
+        this.metrics = metrics;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Queries the given factory instead of the triple store, e.g. an in-memory dataset in the benchmarks.
+     */
+    Dumper(InfoDataSetRepository infoDataSetRepository, DumperMetrics metrics, DumpTracer tracer,
+           org.aksw.jena_sparql_api.core.QueryExecutionFactory qef) {
+        this(infoDataSetRepository, metrics, tracer);
+        this.queryExecutions = qef::createQueryExecution;
     }
 
     @PostConstruct
     public void initializeAuthenticationAndQueryExecution() {
         initialQueryExecutionFactory();
+        initialCaches();
+        if (jpaBatchSize != InfoDataSet.ID_ALLOCATION_SIZE)
+            logger.warn("the JDBC batch size {} is not the id allocation size {} of the title counters, "
+                    + "a batch takes more than one sequence call", jpaBatchSize, InfoDataSet.ID_ALLOCATION_SIZE);
+    }
+
+    private void initialCaches() {
+        if (cacheMaxTriples > 0) {
+            descriptions = Caffeine.newBuilder()
+                    .maximumWeight(cacheMaxTriples)
+                    .<List<Node>, List<Triple>>weigher((key, triples) -> triples.size() + 1)
+                    .recordStats()
+                    .build();
+            metrics.monitor(descriptions, "descriptions");
+        }
     }
 
     private void initialQueryExecutionFactory() {
+        if (!tdb2Location.isEmpty()) {
+            localDataset = TDB2Factory.connectDataset(tdb2Location);
+            queryExecutions = new QueryExecutionFactoryDataset(localDataset)::createQueryExecution;
+            if (directGraphs)
+                quadIndexGraphs = new QuadIndexGraphs(localDataset);
+            logger.info("dumping the local TDB2 database {}, direct graphs: {}", tdb2Location, directGraphs);
+            return;
+        }
+
         credentials = new UsernamePasswordCredentials(tripleStoreUsername, tripleStorePassword);
 
+        //by default one connection for each graph fetcher and one for listing the pages
+        int connections = maxConnections > 0 ? maxConnections : getConcurrency() + 1;
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(keepAlive, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(connections);
+        connectionManager.setDefaultMaxPerRoute(connections);
+
         HttpClientBuilder clientBuilder = HttpClientBuilder.create();
         clientBuilder.setDefaultCredentialsProvider(this);
+        clientBuilder.setConnectionManager(connectionManager);
+        clientBuilder.setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .build());
+        clientBuilder.setKeepAliveStrategy((response, context) -> {
+            long keepAliveOfStore = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAliveOfStore > 0 ? Math.min(keepAliveOfStore, keepAlive) : keepAlive;
+        });
+        clientBuilder.evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS);
+        if (!compression)
+            clientBuilder.disableContentCompression();
         org.apache.http.impl.client.CloseableHttpClient client = clientBuilder.build();
 
-
-        qef = new QueryExecutionFactoryHttp(
-                tripleStoreURL, new org.apache.jena.sparql.core.DatasetDescription(), client);
-        qef = new QueryExecutionFactoryRetry(qef, 5, 1000);
+        queryExecutions = new HttpQueryExecutions(tripleStoreURL, client, selectFormat, constructFormat, compression);
+        logger.info("{} connections to the triple store, compression: {}", connections, compression);
 
     }
 
-//    @Scheduled(cron = "${info.dumper.scheduler}")
-//    public void scheduledDumping() {
-//        try {
-//            dump();
-//        } catch (Exception e) {
-//            logger.error("{}", e);
-//        }
-//    }
+    @PreDestroy
+    public void closeLocalDataset() {
+        if (localDataset != null)
+            localDataset.close();
+    }
 
     public void dump() throws Exception {
+        dump(new DumpJob());
+    }
 
+    /**
+     * @param job receives the progress, the dump stops with a CancellationException when it is cancelled
+     */
+    public void dump(DumpJob job) throws Exception {
 
-        logger.info("dumping is started");
+
+        logger.info("dumping {} is started", job.getId());
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("shard " + shardIndex + " of " + shardCount + " does not exist");
+        }
+        //a Turtle page is only serialized when it is finished, so it would never reach the byte budget
+        if (pageMaxBytes > 0 && !OutputFormat.fromName(outputFormat).isStreaming()) {
+            throw new IllegalArgumentException("dumper.page.maxBytes needs a streaming dumper.output.format, "
+                    + outputFormat + " is serialized when the page is finished");
+        }
+        boolean portalLayout = "portals".equalsIgnoreCase(layout);
+        //every shard would write all portals, the merge only knows one collection
+        if (portalLayout && shardCount > 1) {
+            throw new IllegalArgumentException("dumper.layout=portals cannot be sharded");
+        }
+        PageBoundary boundary = new PageBoundary(pageMaxTriples, pageMaxBytes);
+        paginationInfo = new PaginationInfo(Boolean.parseBoolean(addPaginationInfo), PREFIXES);
 
         logger.info("TS_URL: " + tripleStoreURL);
 
-        infoDataSetRepository.deleteAll();
+        long jpaStart = System.nanoTime();
+        infoDataSetRepository.deleteAllInBatch();
+        metrics.recordJpa(System.nanoTime() - jpaStart);
 
         //First, get the total number of datasets in the triple store.
-        //Then, get names of datasets from triple store page by page (100 dataset in each request)
-        //After that, for each of those 100 datasets get all predicate and object and also dcat:publisher and dcat:Distribution related to that dataset,
-        //Finally, generate a file for all those 100 datasets and mention the address for the next page
+        //Then, get names of datasets from triple store page by page (PAGE_SIZE dataset in each request)
+        //After that, for each of those datasets get all predicate and object and also dcat:publisher and dcat:Distribution related to that dataset,
+        //Finally, generate a file for all those datasets and mention the address for the next page
+        //Pages are listed by one thread, graphs are fetched by up to `parallelism` threads and the caller writes the pages in order
+
 
+        //the store may have changed since the last dump
+        if (descriptions != null)
+            descriptions.invalidateAll();
+
+        scopeGraphs = getScopeGraphs();
+        if (scopeGraphs == null) {
+            throw new Exception("Cannot discover the graphs");
+        }
+        logger.info("graph scope: {}", scopeGraphs.isEmpty() ? "all graphs" : scopeGraphs);
 
         long totalNumberOfDataSets = getTotalNumberOfDataSets();
         logger.debug("Total number of datasets is {}", totalNumberOfDataSets);
         if (totalNumberOfDataSets == -1) {
             throw new Exception("Cannot Query the TripleStore");
         }
+        TitleIndex titleIndex = getTitleIndex();
+        if (titleIndex == null) {
+            throw new Exception("Cannot build the title index");
+        }
+        logger.debug("{} dataSets have a repetitive title", titleIndex.size());
+        if (persistTitleIndex) {
+            jpaStart = System.nanoTime();
+            saveCounters(titleIndex.getCounters());
+            metrics.recordJpa(System.nanoTime() - jpaStart);
+        }
+
+        //with a page budget the graph queries ask an adaptive number of dataSets
+        AdaptiveBatchSize adaptiveBatchSize = boundary.isFixed() ? null : new AdaptiveBatchSize(Math.max(batchSize, 1),
+                1, batchMax, TimeUnit.MILLISECONDS.toNanos(batchTargetLatency), batchMaxTriples);
+        ExecutorService pageLister = Executors.newSingleThreadExecutor();
+        ExecutorService graphFetchers = Executors.newFixedThreadPool(getConcurrency());
+        try {
+            if (portalLayout)
+                dumpPortals(titleIndex, boundary, adaptiveBatchSize, pageLister, graphFetchers, job);
+            else
+                dumpPages(totalNumberOfDataSets, titleIndex, boundary, adaptiveBatchSize, pageLister, graphFetchers, job);
+        } finally {
+            pageLister.shutdownNow();
+            graphFetchers.shutdownNow();
+        }
+        if (adaptiveBatchSize != null)
+            logger.info("batch size at the end: {}", adaptiveBatchSize.get());
+    }
+
+    /**
+     * Pages layout: one paged collection of all dataSets in the output folder.
+     */
+    private void dumpPages(long totalNumberOfDataSets, TitleIndex titleIndex, PageBoundary boundary,
+                           AdaptiveBatchSize adaptiveBatchSize, ExecutorService pageLister,
+                           ExecutorService graphFetchers, DumpJob job) throws Exception {
+        if (!boundary.isFixed() && (incremental || shardCount > 1))
+            logger.warn("incremental and sharded dumps need fixed pages, all pages are written");
+
+        PageFiles pageFiles = getPageFiles();
+        File manifestFile = new File(folderPath, DumpManifest.FILE_NAME);
+        File checkpointFile = new File(folderPath, DumpCheckpoint.FILE_NAME);
+        boolean interrupted = checkpointFile.isFile();
+        DumpCheckpoint checkpoint = getCheckpoint(checkpointFile, totalNumberOfDataSets, pageFiles, titleIndex);
+        IncrementalPages incrementalPages = null;
+        if (incremental && boundary.isFixed()) {
+            DumpManifest previousManifest = DumpManifest.load(manifestFile, getManifestSettings(pageFiles));
+            //the interrupted dump may have written pages the manifest does not describe
+            if (interrupted && checkpoint.getPagesDone() == 0) {
+                logger.info("the interrupted dump is not continued, all pages are written");
+                previousManifest = new DumpManifest();
+            }
+            incrementalPages = new IncrementalPages(previousManifest, scopeGraphs);
+        } else {
+            //the pages are written without a manifest, so it would describe other pages
+            Files.deleteIfExists(manifestFile.toPath());
+        }
+        //incremental dumps keep every dataSet on the page of the previous dump, the others page by OFFSET or keyset
+        PageAssignment assignment = incrementalPages == null ?
+                null : incrementalPages.assign(getAllDataSets(totalNumberOfDataSets), PAGE_SIZE);
+        int numberOfPages = assignment != null ?
+                assignment.getNumberOfPages() : (int) ((totalNumberOfDataSets + PAGE_SIZE - 1) / PAGE_SIZE);
+        if (boundary.isFixed()) {
+            long ownPages = 0;
+            long ownDataSets = 0;
+            for (int pageNumber = 1; pageNumber <= numberOfPages; pageNumber++) {
+                if (isOwnPage(pageNumber)) {
+                    ownPages++;
+                    ownDataSets += assignment != null ? assignment.getDataSets(pageNumber).size() :
+                            Math.min(totalNumberOfDataSets - (long) (pageNumber - 1) * PAGE_SIZE, PAGE_SIZE);
+                }
+            }
+            job.setTotals(ownPages, ownDataSets);
+        } else {
+            //the number of pages is only known at the end
+            job.setTotals(0, totalNumberOfDataSets);
+        }
+
+        DumpManifest manifest = writeCollection(null, totalNumberOfDataSets, numberOfPages, pageFiles, titleIndex,
+                boundary, incrementalPages, assignment, checkpoint, checkpointFile, adaptiveBatchSize, pageLister,
+                graphFetchers, job);
+
+        int writtenPages;
+        if (boundary.isFixed()) {
+            writtenPages = numberOfPages;
+            //the manifest of a shard tells the merge which pages it wrote
+            if (incremental || shardCount > 1) {
+                manifest.setSettings(getManifestSettings(pageFiles));
+                manifest.setTotalNumberOfDataSets(totalNumberOfDataSets);
+                manifest.setNumberOfPages(numberOfPages);
+                if (assignment != null)
+                    manifest.setPageOfDataSet(assignment.getPageOfDataSet());
+                manifest.save(manifestFile);
+            }
+            Files.deleteIfExists(checkpointFile.toPath());
+        } else {
+            writtenPages = checkpoint.getItemsOfPages().size();
+            //a dump that fails while the pagination info is prepended is not continued, it would be prepended twice
+            Files.deleteIfExists(checkpointFile.toPath());
+            paginationInfo.prepend(pageFiles, checkpoint.getItemsOfPages());
+            logger.info("{} pages are written", writtenPages);
+        }
+        deleteStalePages(pageFiles, writtenPages);
+        //a shard has a part of the pages, the catalog file is written by the merge
+        if (shardCount == 1 || !boundary.isFixed())
+            writeCatalog(pageFiles, getPages(pageFiles, writtenPages));
+    }
 
-        for (int idx = 0; idx < totalNumberOfDataSets; idx += PAGE_SIZE) {
-            List<Resource> listOfDataSets = getListOfDataSets(idx, (int) Math.min(totalNumberOfDataSets - idx, PAGE_SIZE));
+    /**
+     * @return the settings a manifest must be written with to describe the pages of this dump
+     */
+    private Map<String, String> getManifestSettings(PageFiles pageFiles) {
+        Map<String, String> settings = new TreeMap<>();
+        settings.put("layout", layout);
+        settings.put("format", pageFiles.getFormat().name() + "/" + pageFiles.getCodec().name());
+        settings.put("pageBoundary", PAGE_SIZE + "/" + pageMaxTriples + "/" + pageMaxBytes);
+        settings.put("scope", scopeGraphs.toString());
+        return settings;
+    }
 
-            if (listOfDataSets.size() != PAGE_SIZE && listOfDataSets.size() != totalNumberOfDataSets - idx) {
+    private PageFiles getPageFiles() {
+        return new PageFiles(new File(folderPath), serverAddress, OutputFormat.fromName(outputFormat),
+                OutputCodec.fromName(outputCompression), compressionLevel);
+    }
+
+    /**
+     * Lists all dataSets by keyset paging.
+     */
+    private List<Resource> getAllDataSets(long totalNumberOfDataSets) throws Exception {
+        List<Resource> dataSets = new ArrayList<>((int) totalNumberOfDataSets);
+        Resource lastSeenDataSet = null;
+        for (long idx = 0; idx < totalNumberOfDataSets; idx += PAGE_SIZE) {
+            int limit = (int) Math.min(totalNumberOfDataSets - idx, PAGE_SIZE);
+            List<Resource> listOfDataSets = getListOfDataSets(idx, lastSeenDataSet, limit);
+            if (listOfDataSets.size() != limit) {
                 throw new Exception("There is an error in getting dataSets from TripleStore");
             }
+            lastSeenDataSet = listOfDataSets.get(listOfDataSets.size() - 1);
+            dataSets.addAll(listOfDataSets);
+        }
+        return dataSets;
+    }
 
-            Model model = ModelFactory.createDefaultModel();
+    /**
+     * Portal layout: every portal gets its own folder and paged collection and the index lists them with their
+     * pages, see {@link PortalLayout}. The portals are written one after the other, each by the same stages as the
+     * pages layout, so they share the graph fetchers, the page boundary and the adaptive batch size. Every portal
+     * has its own checkpoint, a resumed dump skips the portals that are finished.
+     */
+    private void dumpPortals(TitleIndex titleIndex, PageBoundary boundary, AdaptiveBatchSize adaptiveBatchSize,
+                             ExecutorService pageLister, ExecutorService graphFetchers, DumpJob job) throws Exception {
+        if (incremental)
+            logger.warn("incremental dumps are not supported by the portal layout, all pages are written");
+        //the output folder has no pages of its own anymore
+        Files.deleteIfExists(new File(folderPath, DumpManifest.FILE_NAME).toPath());
+        Map<Resource, Long> portals = getNumberOfDataSetsOfPortals();
+        if (portals == null) {
+            throw new Exception("Cannot Query the dataSets of the portals");
+        }
+        PortalLayout portalLayout = new PortalLayout(new File(folderPath), serverAddress,
+                OutputFormat.fromName(outputFormat), OutputCodec.fromName(outputCompression), compressionLevel, PREFIXES);
+        Set<String> previousPortals = portalLayout.getIndexedNames();
+        Map<String, Resource> portalsByName = new TreeMap<>();
+        long totalPages = 0;
+        long totalNumberOfDataSets = 0;
+        for (Map.Entry<Resource, Long> portal : portals.entrySet()) {
+            if (!portal.getKey().isURIResource()) {
+                //a blank node cannot be bound in the queries of the portal, it would match every portal
+                logger.warn("The portal {} has no IRI, its {} dataSets are not dumped", portal.getKey(), portal.getValue());
+                continue;
+            }
+            Resource other = portalsByName.put(portalLayout.getName(portal.getKey()), portal.getKey());
+            if (other != null) {
+                throw new Exception("The portals " + other + " and " + portal.getKey() + " have the same name");
+            }
+            totalPages += (portal.getValue() + PAGE_SIZE - 1) / PAGE_SIZE;
+            totalNumberOfDataSets += portal.getValue();
+        }
+        //the number of pages of a budget is only known at the end
+        job.setTotals(boundary.isFixed() ? totalPages : 0, totalNumberOfDataSets);
+        logger.info("{} portals, {} dataSets", portalsByName.size(), totalNumberOfDataSets);
+
+        Map<String, Integer> pages = new LinkedHashMap<>();
+        List<File> pagesOfCatalog = new ArrayList<>();
+        for (Map.Entry<String, Resource> portal : portalsByName.entrySet()) {
+            PageFiles pageFiles = portalLayout.getPageFiles(portal.getKey());
+            int writtenPages = dumpPortal(portal.getValue(), portals.get(portal.getValue()), pageFiles,
+                    new File(portalLayout.getFolder(portal.getKey()), DumpCheckpoint.FILE_NAME), titleIndex, boundary,
+                    adaptiveBatchSize, pageLister, graphFetchers, job);
+            pages.put(portal.getKey(), writtenPages);
+            pagesOfCatalog.addAll(getPages(pageFiles, writtenPages));
+        }
+        //the pages of a budget have different sizes, each tells its own
+        portalLayout.writeIndex(portalsByName, portals, pages, boundary.isFixed() ? PAGE_SIZE : 0);
+        writeCatalog(getPageFiles(), pagesOfCatalog);
+
+        previousPortals.removeAll(portalsByName.keySet());
+        for (String previousPortal : previousPortals)
+            portalLayout.delete(previousPortal, DumpCheckpoint.FILE_NAME);
+        //the dump is complete, no portal is continued
+        for (String portal : portalsByName.keySet())
+            Files.deleteIfExists(new File(portalLayout.getFolder(portal), DumpCheckpoint.FILE_NAME).toPath());
+    }
 
-            //get graph for each dataSet
-            for (Resource dataSet : listOfDataSets) {
+    /**
+     * Writes the paged collection of one portal and deletes the pages it had in the previous dump in addition.
+     *
+     * @param checkpointFile progress of the portal, it is kept when the portal is finished, so a resumed dump does
+     *                       not write it again
+     * @return the number of written pages
+     */
+    private int dumpPortal(Resource portal, long numberOfDataSets, PageFiles pageFiles, File checkpointFile,
+                           TitleIndex titleIndex, PageBoundary boundary, AdaptiveBatchSize adaptiveBatchSize,
+                           ExecutorService pageLister, ExecutorService graphFetchers, DumpJob job) throws Exception {
+        int numberOfPages = (int) ((numberOfDataSets + PAGE_SIZE - 1) / PAGE_SIZE);
+        DumpCheckpoint checkpoint = getCheckpoint(checkpointFile, numberOfDataSets, pageFiles, titleIndex);
+        if (checkpoint.isFinished()) {
+            logger.info("{} is already written", portal);
+        } else {
+            writeCollection(portal, numberOfDataSets, numberOfPages, pageFiles, titleIndex, boundary, null, null,
+                    checkpoint, checkpointFile, adaptiveBatchSize, pageLister, graphFetchers, job);
+            if (!boundary.isFixed()) {
+                //a dump that fails while the pagination info is prepended is not continued, it would be prepended twice
+                Files.deleteIfExists(checkpointFile.toPath());
+                paginationInfo.prepend(pageFiles, checkpoint.getItemsOfPages());
+            }
+            checkpoint.setFinished(true);
+            checkpoint.save(checkpointFile);
+            logger.debug("{} is written", portal);
+        }
+        int writtenPages = boundary.isFixed() ? numberOfPages : checkpoint.getItemsOfPages().size();
+        deleteStalePages(pageFiles, writtenPages);
+        return writtenPages;
+    }
 
-                Resource portal = getPortal(dataSet);
-                if (portal == null) {
-                    logger.warn("portal is null for dataset {}", dataSet);
-                    continue;
-                }
+    /**
+     * Inserts the counters in transactions of one JDBC batch each, so the persistence context never holds more
+     * than one batch.
+     */
+    private void saveCounters(Collection<InfoDataSet> counters) {
+        List<InfoDataSet> batch = new ArrayList<>(Math.max(jpaBatchSize, 1));
+        for (InfoDataSet counter : counters) {
+            batch.add(counter);
+            if (batch.size() >= jpaBatchSize) {
+                infoDataSetRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            infoDataSetRepository.saveAll(batch);
+    }
 
-                //probably the same portal will be added multiple times (but it will be ignored automatically)
-                model.add(portal, RDF.type, DCAT.Catalog);
+    /**
+     * Deletes the pages of a previous dump that had more pages. A shard has only every shard.count-th page, so the
+     * search stops after shard.count missing pages.
+     */
+    private void deleteStalePages(PageFiles pageFiles, int numberOfPages) throws IOException {
+        for (int pageNumber = numberOfPages + 1, missing = 0; missing < shardCount; pageNumber++) {
+            if (Files.deleteIfExists(pageFiles.getFile(pageNumber).toPath())) {
+                logger.debug("page {} of the previous dump is deleted", pageNumber);
+                missing = 0;
+            } else {
+                missing++;
+            }
+        }
+    }
 
+    private boolean isOwnPage(int pageNumber) {
+        return (pageNumber - 1) % shardCount == shardIndex;
+    }
 
-                Model dataSetGraph = getAllPredicatesObjectsPublisherDistributions(dataSet);
-                if (dataSetGraph == null) {
-                    throw new Exception("There is an error in getting " + dataSet + " graph");
-                }
+    /**
+     * Merges the pages written by the shards into one collection in the output folder, see {@link ShardMerge}.
+     *
+     * @param shardFolders output folders of all shards, empty => dumper.shard.folders
+     */
+    public void merge(List<File> shardFolders, DumpJob job) throws Exception {
+        List<File> configuredFolders = new ArrayList<>();
+        for (String shardFolder : this.shardFolders.split(","))
+            if (!shardFolder.trim().isEmpty())
+                configuredFolders.add(new File(shardFolder.trim()).getCanonicalFile());
+        if (shardFolders.isEmpty())
+            shardFolders = configuredFolders;
+        for (File shardFolder : shardFolders) {
+            if (!configuredFolders.contains(shardFolder.getCanonicalFile())) {
+                throw new IllegalArgumentException(shardFolder + " is not in dumper.shard.folders");
+            }
+        }
+        logger.info("merging {} is started, shards: {}", job.getId(), shardFolders);
+        if (shardFolders.isEmpty()) {
+            throw new IllegalArgumentException("There is no shard to merge");
+        }
+        paginationInfo = new PaginationInfo(Boolean.parseBoolean(addPaginationInfo), PREFIXES);
+        PageFiles pageFiles = getPageFiles();
+        int numberOfPages = new ShardMerge(pageFiles, paginationInfo, PAGE_SIZE)
+                .merge(shardFolders, new File(folderPath, DumpManifest.FILE_NAME), job);
+        writeCatalog(pageFiles, getPages(pageFiles, numberOfPages));
+    }
+
+    private static List<File> getPages(PageFiles pageFiles, int numberOfPages) {
+        List<File> pages = new ArrayList<>(numberOfPages);
+        for (int pageNumber = 1; pageNumber <= numberOfPages; pageNumber++)
+            pages.add(pageFiles.getFile(pageNumber));
+        return pages;
+    }
+
+    /**
+     * Writes the catalog file of the given pages if it is enabled.
+     */
+    private void writeCatalog(PageFiles pageFiles, List<File> pages) throws IOException {
+        if (!catalogFile)
+            return;
+        long start = System.nanoTime();
+        pageFiles.writeCatalog(pages, PREFIXES);
+        logger.info("{} pages are joined into {} in {} ms", pages.size(), pageFiles.getCatalogFile(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Lists, fetches and writes one paged collection, the lister and the graph fetchers are shared by all
+     * collections of the dump.
+     *
+     * @param portal null => all dataSets of the catalog, o.w. the dataSets of the portal
+     * @return the fingerprints of the written pages
+     */
+    private DumpManifest writeCollection(Resource portal, long totalNumberOfDataSets, int numberOfPages,
+                                         PageFiles pageFiles, TitleIndex titleIndex, PageBoundary boundary,
+                                         IncrementalPages incrementalPages, PageAssignment assignment,
+                                         DumpCheckpoint checkpoint, File checkpointFile,
+                                         AdaptiveBatchSize adaptiveBatchSize, ExecutorService pageLister,
+                                         ExecutorService graphFetchers, DumpJob job) throws Exception {
+        //bounded, so listing stops when the writer is `2 * fetchers` chunks behind
+        BlockingQueue<PendingChunk> pendingChunks = new ArrayBlockingQueue<>(2 * getConcurrency());
+        pageLister.submit(() -> listPages(portal, totalNumberOfDataSets, numberOfPages, pageFiles, titleIndex,
+                incrementalPages, assignment, checkpoint, adaptiveBatchSize, graphFetchers, pendingChunks, job));
+        return writePages(totalNumberOfDataSets, numberOfPages, pageFiles, titleIndex, boundary, assignment,
+                pendingChunks, checkpoint, checkpointFile, job);
+    }
 
-                //CKAN specific ( title in the CKAN is the key)
-                if (isTitleRepetitive(dataSet, dataSetGraph)) {
-                    String title = getTitle(dataSet, dataSetGraph).getString();
-                    String portalName = getPortalName(portal);
-                    Optional<InfoDataSet> info = infoDataSetRepository.findByTitleAndPortal(title, portalName);
-                    dataSetGraph.remove(dataSetGraph.getRequiredProperty(dataSet, DCTerms.title));
-                    InfoDataSet infoDataSet;
-                    if (info.isPresent()) {
-                        infoDataSet = info.get();
-                        infoDataSet.setCnt(infoDataSet.getCnt() + 1);
-                    } else infoDataSet = new InfoDataSet(title, portalName, 1);
-                    infoDataSetRepository.save(infoDataSet);
-                    String generatedTitle = String.format("%s (%s_%d)", title, portal, infoDataSet.getCnt());
-                    dataSetGraph.add(dataSet, DCTerms.title, ResourceFactory.createStringLiteral(generatedTitle));
-                    logger.trace("generated title is {}", generatedTitle);
+    /**
+     * @return the checkpoint of the previous dump if it can be continued, o.w. a checkpoint before the first page
+     */
+    private DumpCheckpoint getCheckpoint(File checkpointFile, long totalNumberOfDataSets, PageFiles pageFiles,
+                                         TitleIndex titleIndex) {
+        String settingsFingerprint = Fingerprints.sha256(layout + "\n" + pagingMode + "\n" + addPaginationInfo + "\n" + incremental + "\n"
+                + PAGE_SIZE + "\n" + pageFiles.getAddress(1) + "\n" + scopeGraphs + "\n" + shardIndex + "/" + shardCount
+                + "\n" + pageMaxTriples + "/" + pageMaxBytes);
+        String titleIndexFingerprint = titleIndex.getFingerprint();
+        if (resume) {
+            DumpCheckpoint checkpoint = DumpCheckpoint.load(checkpointFile);
+            long age = checkpoint == null ? 0 : System.currentTimeMillis() - checkpoint.getStartedAt();
+            if (checkpoint == null) {
+                logger.debug("there is no checkpoint");
+            } else if (checkpoint.getStartedAt() <= 0 || age > TimeUnit.MINUTES.toMillis(resumeMaxAge)) {
+                logger.info("the interrupted dump started {} minutes ago, the dump starts from the first page",
+                        TimeUnit.MILLISECONDS.toMinutes(age));
+            } else if (checkpoint.isResumableWith(totalNumberOfDataSets, settingsFingerprint, titleIndexFingerprint)) {
+                logger.info("the dump that started {} minutes ago continues after page {}",
+                        TimeUnit.MILLISECONDS.toMinutes(age), checkpoint.getPagesDone());
+                return checkpoint;
+            } else {
+                logger.info("the catalog or the settings changed since the checkpoint, the dump starts from the first page");
+            }
+        }
+        DumpCheckpoint checkpoint = new DumpCheckpoint();
+        checkpoint.setStartedAt(System.currentTimeMillis());
+        checkpoint.setTotalNumberOfDataSets(totalNumberOfDataSets);
+        checkpoint.setSettingsFingerprint(settingsFingerprint);
+        checkpoint.setTitleIndexFingerprint(titleIndexFingerprint);
+        return checkpoint;
+    }
+
+    /**
+     * @return hydra:itemsPerPage of a fixed page, the dataSets assigned to it or PAGE_SIZE
+     */
+    private static long getItemsPerPage(PageAssignment assignment, int pageNumber) {
+        return assignment == null ? PAGE_SIZE : assignment.getDataSets(pageNumber).size();
+    }
+
+    /**
+     * First stage: gets the dataSets page by page and hands every chunk of them to the graph fetchers.
+     * Any exception is passed to the writer as a failed chunk.
+     * With a page budget the dataSets are listed by keyset paging and the chunks have the adaptive batch size, the
+     * writer decides where the pages end.
+     *
+     * @param portal            null => all dataSets, o.w. only the dataSets of the portal
+     * @param incrementalPages  null => not incremental
+     * @param assignment        the dataSets of every page of an incremental dump, null => pages by OFFSET or keyset
+     * @param checkpoint        where the dump this one continues stopped
+     * @param adaptiveBatchSize null => fixed pages
+     */
+    private Void listPages(Resource portal, long totalNumberOfDataSets, int numberOfPages, PageFiles pageFiles, TitleIndex titleIndex,
+                           IncrementalPages incrementalPages, PageAssignment assignment, DumpCheckpoint checkpoint,
+                           AdaptiveBatchSize adaptiveBatchSize, ExecutorService graphFetchers,
+                           BlockingQueue<PendingChunk> pendingChunks, DumpJob job) throws InterruptedException {
+        try {
+            if (assignment != null) {
+                long idx = checkpoint.getDataSetsDone();
+                for (int pageNumber = checkpoint.getPagesDone() + 1; pageNumber <= numberOfPages && !job.isCancelRequested(); pageNumber++) {
+                    List<Resource> listOfDataSets = assignment.getDataSets(pageNumber);
+                    if (!isOwnPage(pageNumber)) {
+                        pendingChunks.put(new PendingChunk(pageNumber, idx, listOfDataSets.size(), null, true,
+                                CompletableFuture.completedFuture(Collections.<DataSetGraph>emptyList()),
+                                PageAction.SKIP, null, null));
+                    } else {
+                        listPage(pageNumber, idx, listOfDataSets, numberOfPages, totalNumberOfDataSets, pageFiles,
+                                titleIndex, incrementalPages, null, graphFetchers, pendingChunks);
+                    }
+                    idx += listOfDataSets.size();
                 }
-                model.add(dataSetGraph);
-                model.add(portal, DCAT.dataset, dataSet);
+            } else {
+                boolean fixedPages = adaptiveBatchSize == null;
+                boolean keysetPaging = !fixedPages || "keyset".equalsIgnoreCase(pagingMode);
+                logger.debug("paging mode is {}", keysetPaging ? "keyset" : "offset");
+                Resource lastSeenDataSet = checkpoint.getLastDataSet() == null ?
+                        null : ResourceFactory.createResource(checkpoint.getLastDataSet());
+
+                for (long idx = checkpoint.getDataSetsDone(); idx < totalNumberOfDataSets && !job.isCancelRequested(); idx += PAGE_SIZE) {
+                    int limit = (int) Math.min(totalNumberOfDataSets - idx, PAGE_SIZE);
+                    int pageNumber = fixedPages ? (int) (idx / PAGE_SIZE + 1) : 0;
+                    //pages of the other shards are only listed if the next page needs their last dataSet
+                    if (fixedPages && !isOwnPage(pageNumber) && !keysetPaging) {
+                        pendingChunks.put(new PendingChunk(pageNumber, idx, limit, null, true,
+                                CompletableFuture.completedFuture(Collections.<DataSetGraph>emptyList()),
+                                PageAction.SKIP, null, null));
+                        continue;
+                    }
+                    //without a last dataSet the page is listed by OFFSET
+                    Resource lastSeen = keysetPaging ? lastSeenDataSet : null;
+                    List<Resource> listOfDataSets = portal == null ? getListOfDataSets(idx, lastSeen, limit) :
+                            getListOfDataSetsOfPortal(portal, idx, lastSeen, limit);
+
+                    if (listOfDataSets.size() != limit) {
+                        throw new Exception("There is an error in getting dataSets " + (portal == null ? "" : "of " + portal + " ")
+                                + "from TripleStore");
+                    }
+                    lastSeenDataSet = listOfDataSets.get(listOfDataSets.size() - 1);
+                    if (fixedPages && !isOwnPage(pageNumber)) {
+                        pendingChunks.put(new PendingChunk(pageNumber, idx, limit, null, true,
+                                CompletableFuture.completedFuture(Collections.<DataSetGraph>emptyList()),
+                                PageAction.SKIP, null, lastSeenDataSet.getURI()));
+                        continue;
+                    }
+                    listPage(pageNumber, idx, listOfDataSets, numberOfPages, totalNumberOfDataSets, pageFiles,
+                            titleIndex, null, adaptiveBatchSize, graphFetchers, pendingChunks);
+                }
+            }
+            if (job.isCancelRequested()) {
+                throw new CancellationException("dump " + job.getId() + " is cancelled");
             }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            CompletableFuture<List<DataSetGraph>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            pendingChunks.put(new PendingChunk(-1, -1, 0, null, true, failed, PageAction.WRITE, null, null));
+        }
+        return null;
+    }
 
-            if(Boolean.parseBoolean(addPaginationInfo)) {
-                String addressPattern = serverAddress + "/model%d.ttl";
-                Resource thisPageAddress = ResourceFactory.createResource(String.format(addressPattern, (idx / PAGE_SIZE + 1)));
-                model.add(thisPageAddress, RDF.type, NS4.PagedCollection);
-                model.add(thisPageAddress, NS4.firstPage,
-                        ResourceFactory.createResource(String.format(addressPattern, 1)));
-                if (idx + PAGE_SIZE < totalNumberOfDataSets)
-                    model.add(thisPageAddress, NS4.nextPage,
-                            ResourceFactory.createResource(String.format(addressPattern, ((idx / PAGE_SIZE + 1) + 1))));
-                model.add(thisPageAddress, NS4.lastPage,
-                        ResourceFactory.createResource(String.format(addressPattern, (totalNumberOfDataSets / PAGE_SIZE + 1))));
-                model.add(thisPageAddress, NS4.itemsPerPage, ResourceFactory.createTypedLiteral(PAGE_SIZE));
-                model.add(thisPageAddress, NS4.totalItems, ResourceFactory.createTypedLiteral(totalNumberOfDataSets));
+    /**
+     * Hands the chunks of one page to the graph fetchers.
+     * In incremental dumps a page whose dataSets did not change since the previous dump is not fetched at all,
+     * only its pagination info is written again if it is outdated.
+     *
+     * @param pageNumber 0 => the page boundary decides
+     * @param idx        listing position of the first dataSet
+     */
+    private void listPage(int pageNumber, long idx, List<Resource> listOfDataSets, int numberOfPages,
+                          long totalNumberOfDataSets, PageFiles pageFiles, TitleIndex titleIndex,
+                          IncrementalPages incrementalPages, AdaptiveBatchSize adaptiveBatchSize,
+                          ExecutorService graphFetchers, BlockingQueue<PendingChunk> pendingChunks) throws Exception {
+        String lastDataSet = listOfDataSets.isEmpty() ? null : listOfDataSets.get(listOfDataSets.size() - 1).getURI();
+        String contentFingerprint = null;
+        if (incrementalPages != null) {
+            contentFingerprint = getContentFingerprint(listOfDataSets, pageFiles, titleIndex, incrementalPages);
+            PageAction action = incrementalPages.getAction(pageNumber, contentFingerprint, pageFiles,
+                    paginationInfo.get(pageFiles, pageNumber, numberOfPages, totalNumberOfDataSets, listOfDataSets.size()));
+            if (action != PageAction.WRITE) {
+                logger.debug("dataSets of page {} did not change, {}", pageNumber, action);
+                pendingChunks.put(new PendingChunk(pageNumber, idx, listOfDataSets.size(), null, true,
+                        CompletableFuture.completedFuture(Collections.<DataSetGraph>emptyList()), action,
+                        contentFingerprint, lastDataSet));
+                return;
             }
+        }
+
+        //a page whose dataSets are all removed is written with its pagination info only
+        if (listOfDataSets.isEmpty()) {
+            pendingChunks.put(new PendingChunk(pageNumber, idx, 0, listOfDataSets, true,
+                    CompletableFuture.completedFuture(Collections.<DataSetGraph>emptyList()), PageAction.WRITE,
+                    contentFingerprint, null));
+        }
+        for (int from = 0; from < listOfDataSets.size(); ) {
+            int to = Math.min(from + (adaptiveBatchSize == null ? Math.max(batchSize, 1) : adaptiveBatchSize.get()),
+                    listOfDataSets.size());
+            List<Resource> chunk = listOfDataSets.subList(from, to);
+            Future<List<DataSetGraph>> graphs = graphFetchers.submit(() -> fetchChunk(chunk, adaptiveBatchSize));
+            pendingChunks.put(new PendingChunk(pageNumber, idx + from, chunk.size(), chunk,
+                    to == listOfDataSets.size(), graphs, PageAction.WRITE, contentFingerprint, lastDataSet));
+            from = to;
+        }
+    }
 
-            //write model
-            String fileName = String.format("model%d.ttl", (idx / PAGE_SIZE + 1));
-            try (FileWriter out = new FileWriter(folderPath + "/" + fileName)) {
-                model.write(out, "TURTLE");
+    /**
+     * @return the number of graph fetchers, which is also the number of chunks in flight
+     */
+    private int getConcurrency() {
+        return Math.max(parallelism, 1);
+    }
+
+    /**
+     * {@link #fetchChunk(List)} that tells the adaptive batch size how long the chunk took.
+     *
+     * @param batchSize receives the latency and the triples of the chunk, null => fixed batch size
+     */
+    private List<DataSetGraph> fetchChunk(List<Resource> chunk, AdaptiveBatchSize batchSize) throws Exception {
+        long start = System.nanoTime();
+        List<DataSetGraph> graphs = fetchChunk(chunk);
+        if (batchSize != null) {
+            long triples = 0;
+            for (DataSetGraph graph : graphs)
+                triples += graph.getGraph().size();
+            batchSize.record(chunk.size(), System.nanoTime() - start, triples);
+        }
+        return graphs;
+    }
+
+    /**
+     * Second stage: portal and graph of the given dataSets, in the same order.
+     *
+     * A sampled chunk gives one chunk span, its items are the dataSets of the chunk and its results their triples.
+     */
+    List<DataSetGraph> fetchChunk(List<Resource> chunk) throws Exception {
+        long traceStart = tracer.start();
+        Map<Resource, Resource> portals = null;
+        Map<Resource, Model> dataSetGraphs = null;
+        if (chunk.size() > 1) {
+            portals = getPortals(chunk);
+            dataSetGraphs = getAllPredicatesObjectsPublisherDistributions(chunk);
+            if (dataSetGraphs == null) {
+                throw new Exception("There is an error in getting graphs of " + chunk.size() + " dataSets starting at " + chunk.get(0));
+            }
+        }
+
+        List<DataSetGraph> ret = new ArrayList<>(chunk.size());
+        for (Resource dataSet : chunk) {
+
+            Resource portal = portals == null ? getPortal(dataSet) : portals.get(dataSet);
+            if (portal == null) {
+                logger.warn("portal is null for dataset {}", dataSet);
+                continue;
+            }
+
+            Model dataSetGraph = dataSetGraphs == null ?
+                    getAllPredicatesObjectsPublisherDistributions(dataSet) : dataSetGraphs.get(dataSet);
+            if (dataSetGraph == null) {
+                throw new Exception("There is an error in getting " + dataSet + " graph");
+            }
+            ret.add(new DataSetGraph(dataSet, portal, dataSetGraph));
+        }
+        if (traceStart != DumpTracer.NOT_SAMPLED) {
+            long triples = 0;
+            for (DataSetGraph dataSetGraph : ret)
+                triples += dataSetGraph.getGraph().size();
+            tracer.record("chunk", chunk.get(0), chunk.size(), triples, System.nanoTime() - traceStart);
+        }
+        return ret;
+    }
+
+    /**
+     * Third stage: takes the chunks in the order they were listed and adds them to the page file they belong to.
+     * Streaming formats get the pagination info at the head of the file and every dataSet graph as soon as it
+     * arrives, so only one chunk has to be kept in memory.
+     * Fixed pages end with the last chunk the lister gave them, pages with a budget end after the dataSet the
+     * boundary finds them full with, their pagination info is added after the dump.
+     *
+     * After every page the checkpoint is saved.
+     *
+     * @param assignment the dataSets of every page of an incremental dump, null => pages by OFFSET or keyset
+     * @return the fingerprints of the written pages
+     */
+    private DumpManifest writePages(long totalNumberOfDataSets, int numberOfPages, PageFiles pageFiles,
+                                    TitleIndex titleIndex, PageBoundary boundary, PageAssignment assignment,
+                                    BlockingQueue<PendingChunk> pendingChunks, DumpCheckpoint checkpoint,
+                                    File checkpointFile, DumpJob job) throws Exception {
+        DumpManifest manifest = new DumpManifest();
+        manifest.getPages().putAll(checkpoint.getPages());
+        int pagesDone = checkpoint.getPagesDone();
+        OpenPage page = null;
+        try {
+            for (long listed = checkpoint.getDataSetsDone();
+                 boundary.isFixed() ? pagesDone < numberOfPages : listed < totalNumberOfDataSets; ) {
+                if (job.isCancelRequested()) {
+                    throw new CancellationException("dump " + job.getId() + " is cancelled");
+                }
+                PendingChunk pendingChunk = pendingChunks.take();
+                List<DataSetGraph> graphs;
+                try {
+                    graphs = pendingChunk.graphs.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception)
+                        throw (Exception) e.getCause();
+                    throw e;
+                }
+                listed += pendingChunk.size;
+
+                if (pendingChunk.action == PageAction.SKIP) {
+                    pagesDone++;
+                    continue;
+                }
+                if (pendingChunk.action != PageAction.WRITE) {
+                    Model header = paginationInfo.get(pageFiles, pendingChunk.pageNumber, numberOfPages,
+                            totalNumberOfDataSets, getItemsPerPage(assignment, pendingChunk.pageNumber));
+                    if (pendingChunk.action == PageAction.REWRITE_PAGINATION_INFO)
+                        paginationInfo.rewrite(pageFiles, pendingChunk.pageNumber, header);
+                    manifest.getPages().put(pendingChunk.pageNumber, new DumpManifest.Page(pendingChunk.contentFingerprint,
+                            PaginationInfo.getFingerprint(header)));
+                    job.pageDone(pendingChunk.size, 0);
+                    pagesDone++;
+                    saveCheckpoint(checkpoint, checkpointFile, pagesDone, listed, pendingChunk.lastDataSet, manifest);
+                    logger.info("page {} of {} did not change", pendingChunk.pageNumber, numberOfPages);
+                    continue;
+                }
+
+                long writeStart = System.nanoTime();
+                if (page == null && boundary.isFixed()) {
+                    page = new OpenPage(pendingChunk.pageNumber, pageFiles.createWriter(pendingChunk.pageNumber, PREFIXES));
+                    page.writer.add(paginationInfo.get(pageFiles, pendingChunk.pageNumber, numberOfPages,
+                            totalNumberOfDataSets, getItemsPerPage(assignment, pendingChunk.pageNumber)));
+                }
+                if (page != null)
+                    page.listed += pendingChunk.size;
+                for (DataSetGraph dataSetGraph : graphs) {
+                    if (page == null)
+                        page = new OpenPage(pagesDone + 1, pageFiles.createWriter(pagesDone + 1, PREFIXES));
+                    page.triples += addDataSet(page.writer, page.portals, dataSetGraph, titleIndex);
+                    page.dataSets++;
+                    if (!boundary.isFixed() && boundary.isFull(page.writer, page.triples)) {
+                        OpenPage completedPage = page;
+                        page = null;
+                        completedPage.writeNanos += System.nanoTime() - writeStart;
+                        finishPage(completedPage, pageFiles, completedPage.dataSets, job);
+                        pagesDone++;
+                        checkpoint.getItemsOfPages().add(completedPage.dataSets);
+                        long dataSetsDone = pendingChunk.from + pendingChunk.dataSets.indexOf(dataSetGraph.getDataSet()) + 1;
+                        saveCheckpoint(checkpoint, checkpointFile, pagesDone, dataSetsDone,
+                                dataSetGraph.getDataSet().getURI(), manifest);
+                        writeStart = System.nanoTime();
+                    }
+                }
+                if (page != null)
+                    page.writeNanos += System.nanoTime() - writeStart;
+
+                if (boundary.isFixed() && pendingChunk.lastOfPage) {
+                    OpenPage completedPage = page;
+                    page = null;
+                    finishPage(completedPage, pageFiles, completedPage.listed, job);
+                    manifest.getPages().put(completedPage.pageNumber, new DumpManifest.Page(pendingChunk.contentFingerprint,
+                            PaginationInfo.getFingerprint(paginationInfo.get(pageFiles, completedPage.pageNumber,
+                                    numberOfPages, totalNumberOfDataSets,
+                                    getItemsPerPage(assignment, completedPage.pageNumber)))));
+                    pagesDone++;
+                    saveCheckpoint(checkpoint, checkpointFile, pagesDone, listed, pendingChunk.lastDataSet, manifest);
+                }
+            }
+            //the last page of a budget is not full
+            if (page != null) {
+                OpenPage completedPage = page;
+                page = null;
+                finishPage(completedPage, pageFiles, completedPage.dataSets, job);
+                checkpoint.getItemsOfPages().add(completedPage.dataSets);
+            }
+        } finally {
+            if (page != null) {
+                try {
+                    page.writer.close();
+                } catch (IOException e) {
+                    logger.warn("An error occurred in discarding the unfinished page, {}", e);
+                }
             }
         }
+        return manifest;
     }
 
-    private String getPortalName(Resource portal) {
-        String[] split = portal.getURI().split("/");// TODO: 19.12.18 with substring would e faster
-        return split[split.length - 1];
+    /**
+     * @param listed dataSets of the page for the progress of the job, fixed pages count the dataSets without portal
+     */
+    private void finishPage(OpenPage page, PageFiles pageFiles, long listed, DumpJob job) throws IOException {
+        try {
+            page.writer.finish();
+        } finally {
+            page.writer.close();
+        }
+        long bytes = pageFiles.getFile(page.pageNumber).length();
+        metrics.recordPage(page.triples, bytes, page.writeNanos);
+        tracer.record("page", page.pageNumber, page.dataSets, page.triples, page.writeNanos);
+        job.pageDone(listed, bytes);
+        logger.info("page {} is written, {} dataSets, {} triples", page.pageNumber, page.dataSets, page.triples);
     }
 
-    private Literal getTitle(Resource dataSet, Model dataSetGraph) {
-        return dataSetGraph.getRequiredProperty(dataSet, DCTerms.title).getLiteral();
+    /**
+     * @param dataSetsDone listed dataSets up to the last one of the written pages
+     * @param lastDataSet  last one of them, where keyset paging continues
+     */
+    private void saveCheckpoint(DumpCheckpoint checkpoint, File checkpointFile, int pagesDone, long dataSetsDone,
+                                String lastDataSet, DumpManifest manifest) throws IOException {
+        checkpoint.setPagesDone(pagesDone);
+        checkpoint.setDataSetsDone(dataSetsDone);
+        checkpoint.setLastDataSet(lastDataSet);
+        if (incremental)
+            checkpoint.setPages(manifest.getPages());
+        checkpoint.save(checkpointFile);
+    }
+
+    /**
+     * @return the number of triples added to the page
+     */
+    private long addDataSet(PageWriter page, Set<Resource> portalsOfPage, DataSetGraph dataSetGraph, TitleIndex titleIndex) {
+        Resource dataSet = dataSetGraph.getDataSet();
+        Resource portal = dataSetGraph.getPortal();
+        Model graph = dataSetGraph.getGraph();
+
+        long triples = 1;
+        //the same portal is used by many dataSets of the page, but it is written once
+        if (portalsOfPage.add(portal)) {
+            page.add(portal, RDF.type, DCAT.Catalog);
+            triples++;
+        }
+
+        //CKAN specific ( title in the CKAN is the key)
+        TitleIndex.Entry repetitiveTitle = titleIndex.get(dataSet);
+        if (repetitiveTitle != null) {
+            graph.remove(dataSet, DCTerms.title, repetitiveTitle.getTitle());
+            String generatedTitle = repetitiveTitle.getGeneratedTitle();
+            graph.add(dataSet, DCTerms.title, ResourceFactory.createStringLiteral(generatedTitle));
+            logger.trace("generated title is {}", generatedTitle);
+        }
+        page.add(graph);
+        page.add(portal, DCAT.dataset, dataSet);
+        return triples + graph.size();
+    }
+
+    /**
+     * @return null if a dataSet has no dct:modified, then the page is always written
+     */
+    private String getContentFingerprint(List<Resource> dataSets, PageFiles pageFiles, TitleIndex titleIndex,
+                                         IncrementalPages incrementalPages) throws Exception {
+        Map<Resource, String> modified = dataSets.isEmpty() ? Collections.emptyMap() : getModifiedDates(dataSets);
+        if (modified == null) {
+            throw new Exception("There is an error in getting dct:modified of the dataSets starting at " + dataSets.get(0));
+        }
+        return incrementalPages.getContentFingerprint(dataSets, modified, pageFiles, titleIndex);
+    }
+
+    /**
+     * A chunk of dataSets whose graphs are being fetched: pageNumber is the fixed page it belongs to (0 => the page
+     * boundary decides), from the listing position of its first dataSet, size the number of listed dataSets and
+     * lastDataSet the last listed one.
+     * Pages that are kept from the previous dump or belong to another shard are a single chunk without graphs.
+     */
+    private static class PendingChunk {
+        private final int pageNumber;
+        private final long from;
+        private final int size;
+        private final List<Resource> dataSets;
+        private final boolean lastOfPage;
+        private final Future<List<DataSetGraph>> graphs;
+        private final PageAction action;
+        private final String contentFingerprint;
+        private final String lastDataSet;
+
+        private PendingChunk(int pageNumber, long from, int size, List<Resource> dataSets, boolean lastOfPage,
+                             Future<List<DataSetGraph>> graphs, PageAction action, String contentFingerprint,
+                             String lastDataSet) {
+            this.pageNumber = pageNumber;
+            this.from = from;
+            this.size = size;
+            this.dataSets = dataSets;
+            this.lastOfPage = lastOfPage;
+            this.graphs = graphs;
+            this.action = action;
+            this.contentFingerprint = contentFingerprint;
+            this.lastDataSet = lastDataSet;
+        }
+    }
+
+    /**
+     * The page the writer stage is adding dataSets to.
+     */
+    private static class OpenPage {
+        private final int pageNumber;
+        private final PageWriter writer;
+        private final Set<Resource> portals = new HashSet<>();
+        private long listed;
+        private long dataSets;
+        private long triples;
+        private long writeNanos;
+
+        private OpenPage(int pageNumber, PageWriter writer) {
+            this.pageNumber = pageNumber;
+            this.writer = writer;
+        }
+    }
+
+    /**
+     * @return the configured or discovered graphs, empty => all graphs, null => the discovery failed
+     */
+    private List<Resource> getScopeGraphs() {
+        if (graphs.trim().isEmpty())
+            return Collections.emptyList();
+        if (!graphs.trim().equalsIgnoreCase("discover")) {
+            List<Resource> configured = new ArrayList<>();
+            for (String graph : graphs.split(","))
+                if (!graph.trim().isEmpty())
+                    configured.add(ResourceFactory.createResource(graph.trim()));
+            return configured;
+        }
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
+                "SELECT DISTINCT ?g\n" +
+                "WHERE\n" +
+                "{\n" +
+                "  GRAPH ?g {\n" +
+                "    ?portal dcat:dataset ?dataSet .\n" +
+                "  }\n" +
+                "}");
+        pss.setNsPrefixes(PREFIXES);
+
+        List<Resource> discovered = new ArrayList<>();
+        boolean successful = executeSelect(QueryKind.GRAPHS, pss, solution -> discovered.add(solution.getResource("g")));
+        if (successful && discovered.isEmpty())
+            logger.warn("no graph links a portal to a dataSet, all graphs are queried");
+        return successful ? discovered : null;
+    }
+
+    /**
+     * @return VALUES block binding the given graph variable to the graphs of the scope, empty if not scoped
+     */
+    private String graphValues(String variable) {
+        return scopeGraphs.isEmpty() ? "" : valuesBlock(variable, scopeGraphs);
+    }
+
+    /**
+     * @return the last non empty path segment of the portal IRI
+     */
+    static String getPortalName(Resource portal) {
+        String uri = portal.getURI();
+        int end = uri.length();
+        while (end > 0 && uri.charAt(end - 1) == '/')
+            end--;
+        return uri.substring(uri.lastIndexOf('/', end - 1) + 1, end);
     }
 
     private Resource getPortal(Resource dataSet) {
@@ -199,6 +1269,7 @@ public class Dumper implements CredentialsProvider {
                 "SELECT ?portal\n" +
                 "WHERE\n" +
                 "{\n" +
+                graphValues("g") +
                 "  GRAPH ?g {\n" +
                 "    ?portal dcat:dataset ?dataSet .\n" +
                 "  }\n" +
@@ -206,8 +1277,44 @@ public class Dumper implements CredentialsProvider {
         pss.setNsPrefixes(PREFIXES);
         pss.setParam("dataSet", dataSet);
 
-        List<Resource> resources = getResources(pss, "portal");
+        return toUniquePortal(dataSet, getResources(QueryKind.PORTAL, pss, "portal"));
+    }
+
+    /**
+     * Batched variant of {@link #getPortal(Resource)}, dataSets without a unique portal are not in the returned map.
+     */
+    private Map<Resource, Resource> getPortals(List<Resource> dataSets) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
+                "SELECT ?dataSet ?portal\n" +
+                "WHERE\n" +
+                "{\n" +
+                valuesBlock("dataSet", dataSets) +
+                graphValues("g") +
+                "  GRAPH ?g {\n" +
+                "    ?portal dcat:dataset ?dataSet .\n" +
+                "  }\n" +
+                "}");
+        pss.setNsPrefixes(PREFIXES);
 
+        Map<Resource, List<Resource>> resources = new HashMap<>();
+        executeSelect(QueryKind.PORTAL, pss, solution -> resources
+                .computeIfAbsent(solution.getResource("dataSet"), k -> new ArrayList<>())
+                .add(solution.getResource("portal")));
+
+        Map<Resource, Resource> portals = new HashMap<>();
+        for (Resource dataSet : dataSets) {
+            Resource portal = toUniquePortal(dataSet, resources.getOrDefault(dataSet, Collections.emptyList()));
+            if (portal != null)
+                portals.put(dataSet, portal);
+        }
+        return portals;
+    }
+
+    /**
+     * @param resources one portal for every link of the dataSet, a portal that links it in two graphs is there twice
+     * @return null if there is not exactly one link
+     */
+    private Resource toUniquePortal(Resource dataSet, List<Resource> resources) {
         if (resources.size() != 1) {
             logger.error("non unique catalog for dataset {}, {}", dataSet, resources);
             return null;
@@ -215,29 +1322,74 @@ public class Dumper implements CredentialsProvider {
         return resources.get(0);
     }
 
-    private boolean isTitleRepetitive(Resource dataSet, Model dataSetGraph) {
-        Literal title = getTitle(dataSet, dataSetGraph);
+    /**
+     * One pass over all titles: every dataSet with a unique portal link (same as {@link #getPortal(Resource)}) and a
+     * title that is used by more than one resource (same as counting DISTINCT ?dataSet for every title) is numbered
+     * in the order of the dataSet IRIs.
+     *
+     * @return null => something went wrong
+     */
+    TitleIndex getTitleIndex() {
         ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
-                "SELECT (COUNT(DISTINCT ?dataSet) AS ?num)\n" +
+                "SELECT DISTINCT ?dataSet ?title ?portal\n" +
                 "WHERE\n" +
                 "{\n" +
-                "  GRAPH ?g {\n" +
-                "    ?dataSet  dct:title  ?title .\n" +
+                "  {\n" +
+                "    SELECT ?title\n" +
+                "    WHERE {\n" +
+                graphValues("g") +
+                "      GRAPH ?g { ?s dct:title ?title . }\n" +
+                "    }\n" +
+                "    GROUP BY ?title\n" +
+                "    HAVING (COUNT(DISTINCT ?s) > 1)\n" +
+                "  }\n" +
+                graphValues("g1") +
+                "  GRAPH ?g1 {\n" +
+                "    ?dataSet a dcat:Dataset ;\n" +
+                "             dct:title ?title .\n" +
+                "  }\n" +
+                "  {\n" +
+                "    SELECT ?dataSet (SAMPLE(?p) AS ?portal)\n" +
+                "    WHERE {\n" +
+                graphValues("g2") +
+                "      GRAPH ?g2 { ?p dcat:dataset ?dataSet . }\n" +
+                "    }\n" +
+                "    GROUP BY ?dataSet\n" +
+                "    HAVING (COUNT(*) = 1)\n" +
                 "  }\n" +
                 "}");
         pss.setNsPrefixes(PREFIXES);
-        pss.setParam("title", title);
-        long cnt = getCount(pss);
-        return cnt > 1;
+
+        TitleIndex titleIndex = new TitleIndex();
+        boolean successful = executeSelect(QueryKind.TITLE_INDEX, pss, solution -> {
+            Resource portal = solution.getResource("portal");
+            titleIndex.add(solution.getResource("dataSet"), solution.getLiteral("title"), portal, getPortalName(portal));
+        });
+        return successful ? titleIndex.number() : null;
     }
 
-    private Model getAllPredicatesObjectsPublisherDistributions(Resource dataSet) {
+    /**
+     * @return the triples of the dataSet and of its objects in every graph of the scope
+     */
+    Model getAllPredicatesObjectsPublisherDistributions(Resource dataSet) {
+        if (quadIndexGraphs != null) {
+            long start = System.nanoTime();
+            Model model = quadIndexGraphs.get(dataSet, scopeGraphs);
+            metrics.recordQuery(QueryKind.CONSTRUCT, System.nanoTime() - start);
+            return model;
+        }
+        if (descriptions != null) {
+            Map<Resource, Model> models = getDataSetGraphsWithCache(Collections.singletonList(dataSet));
+            return models == null ? null : models.getOrDefault(dataSet, ModelFactory.createDefaultModel());
+        }
+
         Model model;
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
                 "CONSTRUCT { " + "?dataSet ?predicate ?object .\n" +
                 "\t?object ?p2 ?o2}\n" +
                 "WHERE { \n" +
+                graphValues("g") +
                 "  GRAPH ?g {\n" +
                 "    ?dataSet ?predicate ?object.\n" +
                 "    OPTIONAL { ?object ?p2 ?o2 }\n" +
@@ -247,27 +1399,188 @@ public class Dumper implements CredentialsProvider {
         pss.setNsPrefixes(PREFIXES);
         pss.setParam("dataSet", dataSet);
 
-        model = executeConstruct(pss);
+        model = executeConstruct(QueryKind.CONSTRUCT, pss);
 
         return model;
     }
 
 
-    private Model executeConstruct(ParameterizedSparqlString pss) {
-        Model model = null;
-        try (QueryExecution queryExecution = qef.createQueryExecution(pss.asQuery())) {
-            model = queryExecution.execConstruct();
-        } catch (Exception ex) {
-            logger.error("An error occurred in executing construct, {}", ex);
+    /**
+     * Batched variant of {@link #getAllPredicatesObjectsPublisherDistributions(Resource)}. The pattern is the same
+     * but it is asked as SELECT, so every row still tells to which dataSet it belongs.
+     *
+     * @return null if the query failed, o.w. the graph of every dataSet that has at least one triple
+     */
+    private Map<Resource, Model> getAllPredicatesObjectsPublisherDistributions(List<Resource> dataSets) {
+        if (quadIndexGraphs != null) {
+            long start = System.nanoTime();
+            Map<Resource, Model> models = quadIndexGraphs.get(dataSets, scopeGraphs);
+            metrics.recordQuery(QueryKind.CONSTRUCT, System.nanoTime() - start);
+            return models;
         }
-        return model;
+        if (descriptions != null)
+            return getDataSetGraphsWithCache(dataSets);
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
+                "SELECT ?dataSet ?predicate ?object ?p2 ?o2\n" +
+                "WHERE { \n" +
+                valuesBlock("dataSet", dataSets) +
+                graphValues("g") +
+                "  GRAPH ?g {\n" +
+                "    ?dataSet ?predicate ?object.\n" +
+                "    OPTIONAL { ?object ?p2 ?o2 }\n" +
+                "  }\n" +
+                "}");
+
+        pss.setNsPrefixes(PREFIXES);
+
+        Map<Resource, Model> models = new HashMap<>();
+        boolean successful = executeSelect(QueryKind.CONSTRUCT, pss, solution -> {
+            Resource dataSet = solution.getResource("dataSet");
+            Graph graph = models.computeIfAbsent(dataSet, k -> ModelFactory.createDefaultModel()).getGraph();
+            Node object = solution.get("object").asNode();
+            graph.add(Triple.create(dataSet.asNode(), solution.get("predicate").asNode(), object));
+            if (solution.contains("p2"))
+                graph.add(Triple.create(object, solution.get("p2").asNode(), solution.get("o2").asNode()));
+        });
+        return successful ? models : null;
+    }
+
+    /**
+     * Same graphs as {@link #getAllPredicatesObjectsPublisherDistributions(List)}, but the triples of shared
+     * IRI objects (publishers, licenses) are taken from the description cache, and only the missing ones are asked
+     * in one more query. The other objects are described in the first query, they are not shared.
+     *
+     * @return null if a query failed, o.w. the graph of every dataSet that has at least one triple
+     */
+    private Map<Resource, Model> getDataSetGraphsWithCache(List<Resource> dataSets) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
+                "SELECT ?dataSet ?g ?predicate ?object ?p2 ?o2\n" +
+                "WHERE { \n" +
+                valuesBlock("dataSet", dataSets) +
+                graphValues("g") +
+                "  GRAPH ?g {\n" +
+                "    ?dataSet ?predicate ?object.\n" +
+                "    OPTIONAL { ?object ?p2 ?o2 FILTER(isBlank(?object) || ?predicate NOT IN (" +
+                SHARED_PREDICATES.stream().map(FmtUtils::stringForNode).collect(Collectors.joining(", ")) + ")) }\n" +
+                "  }\n" +
+                "}");
+
+        pss.setNsPrefixes(PREFIXES);
+
+        Map<Resource, Model> models = new HashMap<>();
+        Map<Resource, Set<List<Node>>> objectsOfDataSets = new HashMap<>();
+        boolean successful = executeSelect(QueryKind.CONSTRUCT, pss, solution -> {
+            Resource dataSet = solution.getResource("dataSet");
+            Graph graph = models.computeIfAbsent(dataSet, k -> ModelFactory.createDefaultModel()).getGraph();
+            Node object = solution.get("object").asNode();
+            graph.add(Triple.create(dataSet.asNode(), solution.get("predicate").asNode(), object));
+            if (solution.contains("p2"))
+                graph.add(Triple.create(object, solution.get("p2").asNode(), solution.get("o2").asNode()));
+            else if (object.isURI() && SHARED_PREDICATES.contains(solution.get("predicate").asNode()))
+                objectsOfDataSets.computeIfAbsent(dataSet, k -> new HashSet<>())
+                        .add(Arrays.asList(solution.get("g").asNode(), object));
+        });
+        if (!successful)
+            return null;
+
+        Map<List<Node>, List<Triple>> found = new HashMap<>();
+        Set<List<Node>> misses = new LinkedHashSet<>();
+        for (Set<List<Node>> objects : objectsOfDataSets.values())
+            for (List<Node> object : objects) {
+                List<Triple> cached = descriptions.getIfPresent(object);
+                if (cached != null)
+                    found.put(object, cached);
+                else
+                    misses.add(object);
+            }
+        if (!misses.isEmpty() && !describe(misses, found))
+            return null;
+
+        for (Map.Entry<Resource, Set<List<Node>>> objectsOfDataSet : objectsOfDataSets.entrySet()) {
+            Graph graph = models.get(objectsOfDataSet.getKey()).getGraph();
+            for (List<Node> object : objectsOfDataSet.getValue())
+                for (Triple triple : found.get(object))
+                    graph.add(triple);
+        }
+        return models;
     }
 
-    private List<Resource> getListOfDataSets(int idx, int limit) {
+    /**
+     * Fetches the triples of the given (graph, object) pairs, puts them in the cache and in found.
+     *
+     * @return false => the query failed
+     */
+    private boolean describe(Set<List<Node>> objects, Map<List<Node>, List<Triple>> found) {
+        StringBuilder values = new StringBuilder("  VALUES (?g ?object) {");
+        for (List<Node> object : objects)
+            values.append(" (").append(FmtUtils.stringForNode(object.get(0)))
+                    .append(' ').append(FmtUtils.stringForNode(object.get(1))).append(')');
+        ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
+                "SELECT ?g ?object ?p2 ?o2\n" +
+                "WHERE { \n" +
+                values.append(" }\n") +
+                "  GRAPH ?g {\n" +
+                "    ?object ?p2 ?o2 .\n" +
+                "  }\n" +
+                "}");
+
+        Map<List<Node>, List<Triple>> described = new HashMap<>();
+        boolean successful = executeSelect(QueryKind.CONSTRUCT, pss, solution -> {
+            Node object = solution.get("object").asNode();
+            described.computeIfAbsent(Arrays.asList(solution.get("g").asNode(), object), k -> new ArrayList<>())
+                    .add(Triple.create(object, solution.get("p2").asNode(), solution.get("o2").asNode()));
+        });
+        if (!successful)
+            return false;
+        for (List<Node> object : objects) {
+            List<Triple> triples = described.getOrDefault(object, Collections.emptyList());
+            descriptions.put(object, triples);
+            found.put(object, triples);
+        }
+        return true;
+    }
+
+    /**
+     * @return the latest dct:modified of every dataSet that has one, null if the query failed
+     */
+    private Map<Resource, String> getModifiedDates(List<Resource> dataSets) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
+                "SELECT ?dataSet (MAX(STR(?modified)) AS ?lastModified)\n" +
+                "WHERE { \n" +
+                valuesBlock("dataSet", dataSets) +
+                graphValues("g") +
+                "  GRAPH ?g {\n" +
+                "    ?dataSet dct:modified ?modified .\n" +
+                "  }\n" +
+                "}\n" +
+                "GROUP BY ?dataSet");
+
+        pss.setNsPrefixes(PREFIXES);
+
+        Map<Resource, String> modified = new HashMap<>();
+        boolean successful = executeSelect(QueryKind.MODIFIED, pss, solution ->
+                modified.put(solution.getResource("dataSet"), solution.getLiteral("lastModified").getLexicalForm()));
+        return successful ? modified : null;
+    }
+
+    private static String valuesBlock(String variable, Collection<? extends RDFNode> nodes) {
+        StringBuilder values = new StringBuilder("  VALUES ?").append(variable).append(" {");
+        for (RDFNode node : nodes)
+            values.append(' ').append(FmtUtils.stringForRDFNode(node));
+        return values.append(" }\n").toString();
+    }
+
+    private Model executeConstruct(QueryKind kind, ParameterizedSparqlString pss) {
+        return execute(kind, pss, QueryExecution::execConstruct);
+    }
+
+    List<Resource> getListOfDataSets(int idx, int limit) {
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
                 "SELECT DISTINCT ?dataSet\n" +
                 "WHERE { \n" +
+                graphValues("g") +
                 "  GRAPH ?g {\n" +
                 "    ?dataSet a dcat:Dataset.\n" +
                 "    FILTER(EXISTS{?dataSet dct:title ?title.})\n" +
@@ -280,22 +1593,184 @@ public class Dumper implements CredentialsProvider {
 
         pss.setNsPrefixes(PREFIXES);
 
-        return getResources(pss, "dataSet");
+        return getResources(QueryKind.LIST, pss, "dataSet");
     }
 
-    private List<Resource> getResources(ParameterizedSparqlString pss, String resourceVariable) {
-        List<Resource> ret = new ArrayList<>();
-        try (QueryExecution queryExecution = qef.createQueryExecution(pss.asQuery())) {
-            ResultSet resultSet = queryExecution.execSelect();
-            while (resultSet.hasNext()) {
-                QuerySolution solution = resultSet.nextSolution();
-                Resource resource = solution.getResource(resourceVariable);
-                ret.add(resource);
-                logger.trace("getResource: {}", resource);
+    /**
+     * Keyset paging if the previous page ended with an IRI, o.w. OFFSET paging. A blank node has no IRI to continue
+     * after, and a resumed dump may not know the last dataSet. Blank nodes sort before IRIs, so the keyset pages
+     * after an OFFSET page list the same dataSets as OFFSET pages would.
+     *
+     * @param idx      listing position of the first dataSet of the page
+     * @param lastSeen last dataSet of the previous page, null if it is not known
+     */
+    private List<Resource> getListOfDataSets(long idx, Resource lastSeen, int limit) {
+        if (idx == 0 || isKey(lastSeen))
+            return getListOfDataSetsAfter(idx == 0 ? null : lastSeen, limit);
+        logger.debug("the page at {} is listed by OFFSET, the last dataSet {} is not an IRI", idx, lastSeen);
+        return getListOfDataSets((int) idx, limit);
+    }
+
+    /**
+     * @return true if keyset paging can continue after the dataSet
+     */
+    private static boolean isKey(Resource dataSet) {
+        return dataSet != null && dataSet.isURIResource();
+    }
+
+    /**
+     * Keyset variant of {@link #getListOfDataSets(int, int)}: instead of skipping the first idx dataSets, the
+     * store only has to return the dataSets that sort after the last one of the previous page.
+     *
+     * @param lastSeen last dataSet of the previous page, an IRI, null for the first page
+     */
+    List<Resource> getListOfDataSetsAfter(Resource lastSeen, int limit) {
+        if (lastSeen != null && !isKey(lastSeen))
+            throw new IllegalArgumentException("keyset paging cannot continue after the blank node " + lastSeen);
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
+                "SELECT DISTINCT ?dataSet\n" +
+                "WHERE { \n" +
+                graphValues("g") +
+                "  GRAPH ?g {\n" +
+                "    ?dataSet a dcat:Dataset.\n" +
+                "    FILTER(EXISTS{?dataSet dct:title ?title.})\n" +
+                "  }\n" +
+                (lastSeen == null ? "" : "  FILTER(STR(?dataSet) > ?lastSeen)\n") +
+                "}\n" +
+                "ORDER BY ?dataSet\n" +
+                "LIMIT " + limit
+        );
+
+        pss.setNsPrefixes(PREFIXES);
+        if (lastSeen != null)
+            pss.setLiteral("lastSeen", lastSeen.getURI());
+
+        return getResources(QueryKind.LIST, pss, "dataSet");
+    }
+
+    /**
+     * {@link #getListOfDataSets(long, Resource, int)} restricted to the dataSets of one portal.
+     */
+    private List<Resource> getListOfDataSetsOfPortal(Resource portal, long idx, Resource lastSeen, int limit) {
+        boolean keysetPaging = idx == 0 || isKey(lastSeen);
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
+                "SELECT DISTINCT ?dataSet\n" +
+                "WHERE { \n" +
+                graphValues("g1") +
+                "  GRAPH ?g1 {\n" +
+                "    ?portal dcat:dataset ?dataSet .\n" +
+                "  }\n" +
+                graphValues("g") +
+                "  GRAPH ?g {\n" +
+                "    ?dataSet a dcat:Dataset.\n" +
+                "    FILTER(EXISTS{?dataSet dct:title ?title.})\n" +
+                "  }\n" +
+                (keysetPaging && idx > 0 ? "  FILTER(STR(?dataSet) > ?lastSeen)\n" : "") +
+                "}\n" +
+                "ORDER BY ?dataSet\n" +
+                (keysetPaging ? "" : "OFFSET " + idx + "\n") +
+                "LIMIT " + limit
+        );
+
+        pss.setNsPrefixes(PREFIXES);
+        pss.setParam("portal", portal);
+        if (keysetPaging && idx > 0)
+            pss.setLiteral("lastSeen", lastSeen.getURI());
+
+        return getResources(QueryKind.LIST, pss, "dataSet");
+    }
+
+    /**
+     * @return the number of dataSets of every portal, null if the query failed
+     */
+    private Map<Resource, Long> getNumberOfDataSetsOfPortals() {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
+                "SELECT ?portal (COUNT(DISTINCT ?dataSet) AS ?num)\n" +
+                "WHERE { \n" +
+                graphValues("g1") +
+                "  GRAPH ?g1 {\n" +
+                "    ?portal dcat:dataset ?dataSet .\n" +
+                "  }\n" +
+                graphValues("g") +
+                "  GRAPH ?g {\n" +
+                "    ?dataSet a dcat:Dataset.\n" +
+                "    FILTER(EXISTS{?dataSet dct:title ?title.})\n" +
+                "  }\n" +
+                "}\n" +
+                "GROUP BY ?portal");
+
+        pss.setNsPrefixes(PREFIXES);
+
+        Map<Resource, Long> portals = new HashMap<>();
+        boolean successful = executeSelect(QueryKind.COUNT, pss, solution ->
+                portals.put(solution.getResource("portal"), solution.getLiteral("num").getLong()));
+        return successful ? portals : null;
+    }
+
+    /**
+     * Executes the query and retries it up to `retries` times with exponential backoff. The result is read completely
+     * inside execution, so a failed attempt never leaves a partial result behind.
+     *
+     * @return null => every attempt failed (it is already logged)
+     */
+    private <T> T execute(QueryKind kind, ParameterizedSparqlString pss, Function<QueryExecution, T> execution) {
+        Query query = pss.asQuery();
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try (QueryExecution queryExecution = queryExecutions.apply(query)) {
+                //TDB2 is only read inside a transaction
+                T result = localDataset == null ? execution.apply(queryExecution) :
+                        Txn.calculateRead(localDataset, () -> execution.apply(queryExecution));
+                metrics.recordQuery(kind, System.nanoTime() - start);
+                return result;
+            } catch (Exception ex) {
+                metrics.recordFailedQuery(kind, System.nanoTime() - start);
+                if (attempt >= retries) {
+                    logger.error("An error occurred in executing {} query, {}", kind, ex);
+                    return null;
+                }
+                logger.debug("{} query failed, retrying: {}", kind, ex.toString());
+                metrics.recordRetry(kind);
+                try {
+                    Thread.sleep(getRetryDelay(attempt));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
             }
-        } catch (Exception ex) {
-            logger.error("An error occurred in getting resources, {}", ex);
         }
+    }
+
+    /**
+     * @return initialDelay * 2^attempt, at most maxDelay, of which a random half is waited, so retries of
+     * concurrent fetchers do not hit the store at the same time
+     */
+    private long getRetryDelay(int attempt) {
+        long delay = Math.min(retryMaxDelay, retryInitialDelay << Math.min(attempt, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * @return false => something went wrong (it is already logged)
+     */
+    private boolean executeSelect(QueryKind kind, ParameterizedSparqlString pss, Consumer<QuerySolution> consumer) {
+        ResultSetRewindable resultSet = execute(kind, pss, queryExecution -> ResultSetFactory.copyResults(queryExecution.execSelect()));
+        if (resultSet == null)
+            return false;
+        while (resultSet.hasNext())
+            consumer.accept(resultSet.nextSolution());
+        return true;
+    }
+
+    private List<Resource> getResources(QueryKind kind, ParameterizedSparqlString pss, String resourceVariable) {
+        List<Resource> ret = new ArrayList<>();
+        executeSelect(kind, pss, solution -> {
+            Resource resource = solution.getResource(resourceVariable);
+            ret.add(resource);
+            logger.trace("getResource: {}", resource);
+        });
         return ret;
     }
 
@@ -307,6 +1782,7 @@ public class Dumper implements CredentialsProvider {
         ParameterizedSparqlString pss = new ParameterizedSparqlString("" +
                 "SELECT (COUNT(DISTINCT ?dataSet) AS ?num)\n" +
                 "WHERE { \n" +
+                graphValues("g") +
                 "  GRAPH ?g {\n" +
                 "    ?dataSet a dcat:Dataset.\n" +
                 "    FILTER(EXISTS{?dataSet dct:title ?title.})\n" +
@@ -315,23 +1791,17 @@ public class Dumper implements CredentialsProvider {
 
         pss.setNsPrefixes(PREFIXES);
 
-        cnt = getCount(pss);
+        cnt = getCount(QueryKind.COUNT, pss);
         return cnt;
     }
 
-    private long getCount(ParameterizedSparqlString pss) {
-        long cnt = -1;
-        try (QueryExecution queryExecution = qef.createQueryExecution(pss.asQuery())) {
-            ResultSet resultSet = queryExecution.execSelect();
-            while (resultSet.hasNext()) {
-                QuerySolution solution = resultSet.nextSolution();
-                RDFNode num = solution.get("num");
-                cnt = num.asLiteral().getLong();
-            }
-        } catch (Exception ex) {
-            logger.error("An error occurred in getting Count, {}", ex);
-        }
-        return cnt;
+    private long getCount(QueryKind kind, ParameterizedSparqlString pss) {
+        long[] cnt = {-1};
+        executeSelect(kind, pss, solution -> {
+            RDFNode num = solution.get("num");
+            cnt[0] = num.asLiteral().getLong();
+        });
+        return cnt[0];
     }
 
     @Override
@@ -0,0 +1,104 @@
+package de.upb.cs.dice.triplestoredump;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters of the dumper, exposed through /actuator/prometheus. All meters are registered up front,
+ * so recording is a map lookup and an atomic update.
+ */
+@Component
+public class DumperMetrics {
+
+    public enum QueryKind {
+        GRAPHS, COUNT, LIST, PORTAL, CONSTRUCT, TITLE_INDEX, MODIFIED
+    }
+
+    private final Map<QueryKind, Timer> queries = new EnumMap<>(QueryKind.class);
+
+    private final Map<QueryKind, Timer> failedQueries = new EnumMap<>(QueryKind.class);
+
+    private final Map<QueryKind, Counter> retries = new EnumMap<>(QueryKind.class);
+
+    private final DistributionSummary pageTriples;
+
+    private final DistributionSummary pageBytes;
+
+    private final Timer pageWrite;
+
+    private final Timer jpa;
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public DumperMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (QueryKind kind : QueryKind.values()) {
+            String tag = kind.name().toLowerCase();
+            queries.put(kind, Timer.builder("dumper.query")
+                    .description("successful SPARQL queries")
+                    .tag("kind", tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            failedQueries.put(kind, Timer.builder("dumper.query.failed")
+                    .description("failed SPARQL query attempts")
+                    .tag("kind", tag)
+                    .register(registry));
+            retries.put(kind, Counter.builder("dumper.query.retries")
+                    .tag("kind", tag)
+                    .register(registry));
+        }
+        pageTriples = DistributionSummary.builder("dumper.page.triples")
+                .publishPercentileHistogram()
+                .register(registry);
+        pageBytes = DistributionSummary.builder("dumper.page.bytes")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        pageWrite = Timer.builder("dumper.page.write")
+                .description("time spent serializing and writing the pages")
+                .register(registry);
+        jpa = Timer.builder("dumper.jpa")
+                .description("time spent in the InfoDataSet repository")
+                .register(registry);
+    }
+
+    public void recordQuery(QueryKind kind, long nanos) {
+        queries.get(kind).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFailedQuery(QueryKind kind, long nanos) {
+        failedQueries.get(kind).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRetry(QueryKind kind) {
+        retries.get(kind).increment();
+    }
+
+    public void recordPage(long triples, long bytes, long writeNanos) {
+        pageTriples.record(triples);
+        pageBytes.record(bytes);
+        pageWrite.record(writeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordJpa(long nanos) {
+        jpa.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Exposes the size, hits, misses and evictions of the cache as cache.* meters tagged with the name.
+     */
+    public void monitor(Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, "dumper." + name);
+    }
+}
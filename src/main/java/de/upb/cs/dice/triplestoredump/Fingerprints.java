@@ -0,0 +1,25 @@
+package de.upb.cs.dice.triplestoredump;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Hashes of the settings, the pages and their pagination info, compared with the ones of the checkpoint and the
+ * manifest.
+ */
+final class Fingerprints {
+
+    private Fingerprints() {
+    }
+
+    static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.http.client.HttpClient;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.sparql.engine.http.QueryEngineHTTP;
+
+import java.util.function.Function;
+
+/**
+ * Creates the HTTP query executions of the triple store with the preferred result formats. The Accept headers may
+ * list several formats with q values, the result is parsed in the format the store answers with.
+ */
+class HttpQueryExecutions implements Function<Query, QueryExecution> {
+
+    private final String service;
+
+    private final HttpClient client;
+
+    private final String selectContentType;
+
+    private final String modelContentType;
+
+    private final boolean compression;
+
+    /**
+     * @param selectContentType Accept header of SELECT queries, empty => default of Jena
+     * @param modelContentType  Accept header of CONSTRUCT queries, empty => default of Jena
+     */
+    HttpQueryExecutions(String service, HttpClient client, String selectContentType, String modelContentType,
+                        boolean compression) {
+        this.service = service;
+        this.client = client;
+        this.selectContentType = selectContentType;
+        this.modelContentType = modelContentType;
+        this.compression = compression;
+    }
+
+    @Override
+    public QueryExecution apply(Query query) {
+        QueryEngineHTTP queryExecution = new QueryEngineHTTP(service, query, client);
+        if (!selectContentType.isEmpty())
+            queryExecution.setSelectContentType(selectContentType);
+        if (!modelContentType.isEmpty())
+            queryExecution.setModelContentType(modelContentType);
+        queryExecution.setAllowCompression(compression);
+        return queryExecution;
+    }
+}
@@ -0,0 +1,80 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental dumps: assigns the dataSets to the pages of the previous dump and finds the pages whose dataSets did
+ * not change since it, by the fingerprints of its {@link DumpManifest}.
+ */
+class IncrementalPages {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalPages.class);
+
+    private final DumpManifest previousManifest;
+
+    /**
+     * the graphs the dataSets are read from, empty => all graphs
+     */
+    private final List<Resource> scopeGraphs;
+
+    /**
+     * @param previousManifest empty => all pages are written
+     */
+    IncrementalPages(DumpManifest previousManifest, List<Resource> scopeGraphs) {
+        this.previousManifest = previousManifest;
+        this.scopeGraphs = scopeGraphs;
+    }
+
+    /**
+     * @param dataSets all dataSets of the catalog
+     */
+    PageAssignment assign(List<Resource> dataSets, int pageSize) {
+        PageAssignment assignment = new PageAssignment(previousManifest.getPageOfDataSet(),
+                previousManifest.getNumberOfPages(), dataSets, pageSize);
+        logger.info("{} dataSets are assigned to {} pages, the previous dump had {}", dataSets.size(),
+                assignment.getNumberOfPages(), previousManifest.getNumberOfPages());
+        return assignment;
+    }
+
+    /**
+     * @param modified the latest dct:modified of the dataSets
+     * @return null if a dataSet has no dct:modified, then the page is always written
+     */
+    String getContentFingerprint(List<Resource> dataSets, Map<Resource, String> modified, PageFiles pageFiles,
+                                 TitleIndex titleIndex) {
+        //another scope gives a dataSet other triples
+        StringBuilder content = new StringBuilder(pageFiles.getFormat().name()).append('\n').append(scopeGraphs);
+        for (Resource dataSet : dataSets) {
+            String lastModified = modified.get(dataSet);
+            if (lastModified == null) {
+                logger.debug("{} has no dct:modified", dataSet);
+                return null;
+            }
+            TitleIndex.Entry repetitiveTitle = titleIndex.get(dataSet);
+            content.append('\n').append(dataSet).append('\t').append(lastModified)
+                    .append('\t').append(repetitiveTitle == null ? "" : repetitiveTitle.getGeneratedTitle());
+        }
+        return Fingerprints.sha256(content.toString());
+    }
+
+    /**
+     * @param contentFingerprint null => the page is written
+     * @param paginationInfo     the pagination info the page gets in this dump
+     * @return KEEP if the page file has the same dataSets and pagination info, REWRITE_PAGINATION_INFO if only the
+     * pagination info differs, o.w. WRITE
+     */
+    PageAction getAction(int pageNumber, String contentFingerprint, PageFiles pageFiles, Model paginationInfo) {
+        DumpManifest.Page previousPage = previousManifest.getPages().get(pageNumber);
+        if (contentFingerprint == null || previousPage == null
+                || !contentFingerprint.equals(previousPage.getContentFingerprint())
+                || !pageFiles.getFile(pageNumber).isFile())
+            return PageAction.WRITE;
+        return PaginationInfo.getFingerprint(paginationInfo).equals(previousPage.getHeaderFingerprint()) ?
+                PageAction.KEEP : PageAction.REWRITE_PAGINATION_INFO;
+    }
+}
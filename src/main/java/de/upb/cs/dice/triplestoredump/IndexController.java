@@ -4,27 +4,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import java.util.Optional;
+
 @Controller
 public class IndexController {
 
     private static final Logger logger = LoggerFactory.getLogger(IndexController.class);
 
-    private final Dumper dumper;
+    private final DumpJobService dumpJobService;
 
     @Autowired
-    public IndexController(Dumper dumper) {
-        this.dumper = dumper;
+    public IndexController(DumpJobService dumpJobService) {
+        this.dumpJobService = dumpJobService;
     }
 
+    /**
+     * Starts a dump in the background (or joins the running one), the progress is at /dump/jobs/{id}.
+     * While a merge runs no dump is started, the page shows the merge.
+     */
     @GetMapping("/dump")
-    public String getDump() {
-        try {
-            dumper.dump();
-        } catch (Exception e) {
-            logger.error("{}", e);
-        }
+    public String getDump(Model model) {
+        Optional<DumpJob> dump = dumpJobService.submit();
+        if (dump.isPresent())
+            logger.info("dump {} is requested", dump.get().getId());
+        else
+            logger.info("a merge is running, no dump is started");
+        model.addAttribute("job", dump.orElseGet(() -> dumpJobService.getCurrent().orElse(null)));
         return "index";
     }
 
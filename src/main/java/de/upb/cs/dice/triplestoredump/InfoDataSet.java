@@ -1,17 +1,34 @@
 package de.upb.cs.dice.triplestoredump;
 
 import javax.persistence.*;
-
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * titleKey is a hash of (title, portal), indexed instead of the up to 2000 characters long title.
+ */
 @Entity
+@Table(indexes = @Index(name = "info_data_set_title_key", columnList = "titleKey", unique = true))
 public class InfoDataSet {
 
+    /**
+     * ids reserved per sequence call, one JDBC batch (spring.jpa.properties.hibernate.jdbc.batch_size) of counters
+     */
+    public static final int ID_ALLOCATION_SIZE = 500;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "info_data_set_sequence")
+    @SequenceGenerator(name = "info_data_set_sequence", allocationSize = ID_ALLOCATION_SIZE)
     private long id;
 
     @Column(length = 2000)
     private String title;
 
+    @Column(length = 43, nullable = false)
+    private String titleKey;
+
     @Column
     private String portal;
 
@@ -27,6 +44,24 @@ public class InfoDataSet {
         this.cnt = cnt;
     }
 
+    public static String titleKey(String title, String portal) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(title.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(portal.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void updateTitleKey() {
+        titleKey = titleKey(title, portal);
+    }
+
     public long getId() {
         return id;
     }
@@ -54,6 +89,10 @@ public class InfoDataSet {
         return this;
     }
 
+    public String getTitleKey() {
+        return titleKey;
+    }
+
     public int getCnt() {
         return cnt;
     }
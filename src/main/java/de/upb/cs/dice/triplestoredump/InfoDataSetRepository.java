@@ -1,12 +1,8 @@
 package de.upb.cs.dice.triplestoredump;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-import java.util.Optional;
-
 @Repository
-public interface InfoDataSetRepository extends CrudRepository<InfoDataSet, Long> {
-    Optional<InfoDataSet> findByTitleAndPortal(String string, String portal);
+public interface InfoDataSetRepository extends JpaRepository<InfoDataSet, Long> {
 }
@@ -0,0 +1,48 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.rdf.model.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Collects the whole page in a model and writes it as Turtle when the page is closed.
+ */
+public class ModelPageWriter implements PageWriter {
+
+    private final Model model = ModelFactory.createDefaultModel();
+
+    private final OutputStream out;
+
+    private boolean finished;
+
+    public ModelPageWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void add(Resource subject, Property predicate, RDFNode object) {
+        model.add(subject, predicate, object);
+    }
+
+    @Override
+    public void add(Model graph) {
+        model.add(graph);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        finished = true;
+        try {
+            model.write(out, "TURTLE");
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!finished)
+            out.close();
+    }
+}
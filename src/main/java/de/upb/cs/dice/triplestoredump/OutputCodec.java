@@ -0,0 +1,100 @@
+package de.upb.cs.dice.triplestoredump;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of the page files. Compressed files are written by a thread of their own
+ * (see {@link AsyncOutputStream}), so compressing does not stall the dump.
+ */
+public enum OutputCodec {
+    NONE("") {
+        @Override
+        protected OutputStream compress(OutputStream out, int level) {
+            return out;
+        }
+
+        @Override
+        protected InputStream decompress(InputStream in) {
+            return in;
+        }
+    },
+    GZIP(".gz") {
+        @Override
+        protected OutputStream compress(OutputStream out, int level) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+
+        @Override
+        protected InputStream decompress(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    },
+    ZSTD(".zst") {
+        @Override
+        protected OutputStream compress(OutputStream out, int level) throws IOException {
+            return new ZstdOutputStream(out, level < 0 ? 3 : level);
+        }
+
+        @Override
+        protected InputStream decompress(InputStream in) throws IOException {
+            return new ZstdInputStream(in);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String extension;
+
+    OutputCodec(String extension) {
+        this.extension = extension;
+    }
+
+    public static OutputCodec fromName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * @return empty for uncompressed files, o.w. the extension including the dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param level compression level, negative => default level of the codec
+     */
+    public OutputStream open(File file, int level) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        if (this == NONE)
+            return out;
+        try {
+            return new AsyncOutputStream(compress(out, level), "compress-" + file.getName());
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    public InputStream openForReading(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            return decompress(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    protected abstract OutputStream compress(OutputStream out, int level) throws IOException;
+
+    protected abstract InputStream decompress(InputStream in) throws IOException;
+}
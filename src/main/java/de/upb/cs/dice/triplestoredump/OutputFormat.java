@@ -0,0 +1,55 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+
+/**
+ * How the pages are serialized. TURTLE builds a model per page (pretty printed), the others stream every
+ * dataSet graph to the file as soon as it is written. RDF_THRIFT is binary, it is loaded without tokenizing text.
+ */
+public enum OutputFormat {
+    TURTLE("ttl", null, false),
+    TURTLE_BLOCKS("ttl", RDFFormat.TURTLE_BLOCKS, false),
+    NTRIPLES("nt", RDFFormat.NTRIPLES, true),
+    RDF_THRIFT("rt", RDFFormat.RDF_THRIFT, true);
+
+    private final String extension;
+
+    private final RDFFormat streamingFormat;
+
+    private final boolean concatenable;
+
+    OutputFormat(String extension, RDFFormat streamingFormat, boolean concatenable) {
+        this.extension = extension;
+        this.streamingFormat = streamingFormat;
+        this.concatenable = concatenable;
+    }
+
+    public static OutputFormat fromName(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public boolean isStreaming() {
+        return streamingFormat != null;
+    }
+
+    public RDFFormat getStreamingFormat() {
+        return streamingFormat;
+    }
+
+    public Lang getLang() {
+        return streamingFormat == null ? Lang.TURTLE : streamingFormat.getLang();
+    }
+
+    /**
+     * @return true if files of the format can be joined byte by byte. Turtle documents can not, their blank node
+     * labels are only unique within one document.
+     */
+    public boolean isConcatenable() {
+        return concatenable;
+    }
+}
@@ -0,0 +1,12 @@
+package de.upb.cs.dice.triplestoredump;
+
+/**
+ * What the writer stage does with a listed page.
+ */
+enum PageAction {
+    WRITE, KEEP, REWRITE_PAGINATION_INFO,
+    /**
+     * the page belongs to another shard
+     */
+    SKIP
+}
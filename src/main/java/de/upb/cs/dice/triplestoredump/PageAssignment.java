@@ -0,0 +1,63 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.rdf.model.Resource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pages of an incremental dump: a dataSet stays on the page the previous dump wrote it to, new dataSets fill the
+ * last page and then new pages. So a new or removed dataSet changes one page instead of moving every following
+ * dataSet to another page, as OFFSET pages do. The dataSets of a page are sorted by IRI.
+ */
+class PageAssignment {
+
+    private final Map<String, Integer> pageOfDataSet = new HashMap<>();
+
+    private final List<List<Resource>> pages = new ArrayList<>();
+
+    /**
+     * @param previousPageOfDataSet page of every dataSet of the previous dump, empty => the first dump
+     * @param previousNumberOfPages pages of the previous dump, a page whose dataSets are all removed is kept empty
+     * @param dataSets              all dataSets of the catalog
+     */
+    PageAssignment(Map<String, Integer> previousPageOfDataSet, int previousNumberOfPages, List<Resource> dataSets,
+                   int pageSize) {
+        for (int pageNumber = 1; pageNumber <= previousNumberOfPages; pageNumber++)
+            pages.add(new ArrayList<>());
+        List<Resource> newDataSets = new ArrayList<>();
+        for (Resource dataSet : dataSets) {
+            Integer pageNumber = previousPageOfDataSet.get(dataSet.getURI());
+            if (pageNumber != null && pageNumber >= 1 && pageNumber <= previousNumberOfPages) {
+                pages.get(pageNumber - 1).add(dataSet);
+                pageOfDataSet.put(dataSet.getURI(), pageNumber);
+            } else {
+                newDataSets.add(dataSet);
+            }
+        }
+        newDataSets.sort(Comparator.comparing(Resource::getURI));
+        for (Resource dataSet : newDataSets) {
+            if (pages.isEmpty() || pages.get(pages.size() - 1).size() >= pageSize)
+                pages.add(new ArrayList<>());
+            pages.get(pages.size() - 1).add(dataSet);
+            pageOfDataSet.put(dataSet.getURI(), pages.size());
+        }
+        for (List<Resource> page : pages)
+            page.sort(Comparator.comparing(Resource::getURI));
+    }
+
+    int getNumberOfPages() {
+        return pages.size();
+    }
+
+    List<Resource> getDataSets(int pageNumber) {
+        return pages.get(pageNumber - 1);
+    }
+
+    Map<String, Integer> getPageOfDataSet() {
+        return pageOfDataSet;
+    }
+}
@@ -0,0 +1,39 @@
+package de.upb.cs.dice.triplestoredump;
+
+/**
+ * Where the writer stage ends a page: fixed pages end after PAGE_SIZE listed dataSets (the lister marks the last
+ * chunk of every page), pages with a budget end after the dataSet with which they reach the number of triples or
+ * serialized bytes.
+ */
+class PageBoundary {
+
+    private final long maxTriples;
+
+    private final long maxBytes;
+
+    /**
+     * @param maxTriples <= 0 => no triple budget
+     * @param maxBytes   <= 0 => no byte budget, o.w. the pages have to be written by a streaming format
+     */
+    PageBoundary(long maxTriples, long maxBytes) {
+        this.maxTriples = maxTriples;
+        this.maxBytes = maxBytes;
+    }
+
+    boolean isFixed() {
+        return maxTriples <= 0 && maxBytes <= 0;
+    }
+
+    /**
+     * @return true => the page ends after the dataSet that was added last
+     */
+    boolean isFull(PageWriter page, long triplesOfPage) {
+        return (maxTriples > 0 && triplesOfPage >= maxTriples)
+                || (maxBytes > 0 && page.getSerializedBytes() >= maxBytes);
+    }
+
+    @Override
+    public String toString() {
+        return isFixed() ? "fixed" : maxTriples + " triples/" + maxBytes + " bytes";
+    }
+}
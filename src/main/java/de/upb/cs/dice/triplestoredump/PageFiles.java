@@ -0,0 +1,216 @@
+package de.upb.cs.dice.triplestoredump;
+
+import com.google.common.io.CountingOutputStream;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.riot.system.StreamRDFWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Names, addresses and opens the page files (modelN.ttl, modelN.nt.gz, ...) of a dump.
+ */
+public class PageFiles {
+
+    private final File folder;
+
+    private final String serverAddress;
+
+    private final OutputFormat format;
+
+    private final OutputCodec codec;
+
+    private final int compressionLevel;
+
+    public PageFiles(File folder, String serverAddress, OutputFormat format, OutputCodec codec, int compressionLevel) {
+        this.folder = folder;
+        this.serverAddress = serverAddress;
+        this.format = format;
+        this.codec = codec;
+        this.compressionLevel = compressionLevel;
+    }
+
+    public String getFileName(int pageNumber) {
+        return String.format("model%d.%s%s", pageNumber, format.getExtension(), codec.getExtension());
+    }
+
+    public File getFile(int pageNumber) {
+        return new File(folder, getFileName(pageNumber));
+    }
+
+    /**
+     * @return the address of the page on the file server
+     */
+    public Resource getAddress(int pageNumber) {
+        return ResourceFactory.createResource(serverAddress + "/" + getFileName(pageNumber));
+    }
+
+    /**
+     * The page is written to a temporary file which replaces the page file when the page is finished,
+     * so the file server never serves a half written page.
+     */
+    public PageWriter createWriter(int pageNumber, Map<String, String> prefixes) throws IOException {
+        File file = getFile(pageNumber);
+        File temporaryFile = new File(folder, file.getName() + ".tmp");
+        CountingOutputStream out = new CountingOutputStream(codec.open(temporaryFile, compressionLevel));
+        return new RenamingPageWriter(createWriter(out, prefixes), out, temporaryFile.toPath(), file.toPath());
+    }
+
+    private PageWriter createWriter(OutputStream out, Map<String, String> prefixes) {
+        return format.isStreaming() ?
+                new StreamingPageWriter(out, format.getStreamingFormat(), prefixes) : new ModelPageWriter(out);
+    }
+
+    /**
+     * Puts the given triples in front of a finished page, e.g. pagination info that is only known after the page
+     * is written. The header is written as a document of its own followed by the bytes of the page, which is still
+     * a valid file of the format, and of the codec (gzip members and zstd frames can be concatenated).
+     */
+    public void prepend(int pageNumber, Model header, Map<String, String> prefixes) throws IOException {
+        File file = getFile(pageNumber);
+        File temporaryFile = new File(folder, file.getName() + ".tmp");
+        try {
+            try (PageWriter writer = createWriter(codec.open(temporaryFile, compressionLevel), prefixes)) {
+                writer.add(header);
+                writer.finish();
+            }
+            try (OutputStream out = new FileOutputStream(temporaryFile, true)) {
+                Files.copy(file.toPath(), out);
+            }
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    public Model read(int pageNumber) throws IOException {
+        Model model = ModelFactory.createDefaultModel();
+        try (InputStream in = codec.openForReading(getFile(pageNumber))) {
+            RDFDataMgr.read(model, in, format.getLang());
+        }
+        return model;
+    }
+
+    public File getCatalogFile() {
+        return new File(folder, String.format("catalog.%s%s", format.getExtension(), codec.getExtension()));
+    }
+
+    /**
+     * Joins the given pages, in their order, into the catalog file, which replaces the previous one when it is
+     * complete. Every page keeps its pagination info. Pages of a concatenable format are copied byte by byte
+     * without decompressing them, the others are parsed one by one and streamed to a TURTLE_BLOCKS catalog.
+     *
+     * @param pages files written in the format and codec of these page files
+     */
+    public void writeCatalog(List<File> pages, Map<String, String> prefixes) throws IOException {
+        File file = getCatalogFile();
+        File temporaryFile = new File(folder, file.getName() + ".tmp");
+        try {
+            if (format.isConcatenable()) {
+                try (OutputStream out = new FileOutputStream(temporaryFile)) {
+                    for (File page : pages)
+                        Files.copy(page.toPath(), out);
+                }
+            } else {
+                try (OutputStream out = codec.open(temporaryFile, compressionLevel)) {
+                    StreamRDF stream = StreamRDFWriter.getWriterStream(out, RDFFormat.TURTLE_BLOCKS);
+                    stream.start();
+                    prefixes.forEach(stream::prefix);
+                    //the parser of every page starts and finishes its destination, the catalog is finished once
+                    StreamRDF pageStream = new StreamRDFWrapper(stream) {
+                        @Override
+                        public void start() {
+                        }
+
+                        @Override
+                        public void prefix(String prefix, String iri) {
+                        }
+
+                        @Override
+                        public void finish() {
+                        }
+                    };
+                    for (File page : pages) {
+                        try (InputStream in = codec.openForReading(page)) {
+                            RDFDataMgr.parse(pageStream, in, format.getLang());
+                        }
+                    }
+                    stream.finish();
+                }
+            }
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    public OutputCodec getCodec() {
+        return codec;
+    }
+
+    private static class RenamingPageWriter implements PageWriter {
+        private final PageWriter writer;
+        private final CountingOutputStream out;
+        private final Path temporaryFile;
+        private final Path file;
+        private boolean finished;
+
+        private RenamingPageWriter(PageWriter writer, CountingOutputStream out, Path temporaryFile, Path file) {
+            this.writer = writer;
+            this.out = out;
+            this.temporaryFile = temporaryFile;
+            this.file = file;
+        }
+
+        @Override
+        public void add(Resource subject, Property predicate, RDFNode object) {
+            writer.add(subject, predicate, object);
+        }
+
+        @Override
+        public void add(Model graph) {
+            writer.add(graph);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.finish();
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+        }
+
+        @Override
+        public long getSerializedBytes() {
+            return out.getCount();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (finished)
+                return;
+            try {
+                writer.close();
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+    }
+}
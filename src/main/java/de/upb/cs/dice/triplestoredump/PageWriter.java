@@ -0,0 +1,29 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the triples of one page. The page file is complete after {@link #finish()}, closing a page that is
+ * not finished discards it.
+ */
+public interface PageWriter extends Closeable {
+
+    void add(Resource subject, Property predicate, RDFNode object);
+
+    void add(Model graph);
+
+    void finish() throws IOException;
+
+    /**
+     * @return bytes serialized so far, before compression. A Turtle page is only serialized by {@link #finish()}.
+     */
+    default long getSerializedBytes() {
+        return 0;
+    }
+}
@@ -0,0 +1,107 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.sparql.util.FmtUtils;
+import org.apache.jena.vocabulary.RDF;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The hydra:PagedCollection triples of a page: written at the head of a new page, rewritten in a page that is kept
+ * from the previous dump and prepended to the pages of a dump with a page budget.
+ */
+class PaginationInfo {
+
+    private final boolean enabled;
+
+    private final Map<String, String> prefixes;
+
+    /**
+     * @param enabled false => the pages have no pagination info
+     */
+    PaginationInfo(boolean enabled, Map<String, String> prefixes) {
+        this.enabled = enabled;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * Every page has lastPage and totalItems, so a client can start at any page.
+     *
+     * @param itemsPerPage the page size of OFFSET pages, the dataSets of the page if the page is assigned them
+     * @return an empty model if the pagination info is not added
+     */
+    Model get(PageFiles pageFiles, int pageNumber, int numberOfPages, long totalNumberOfDataSets, long itemsPerPage) {
+        Model paginationInfo = ModelFactory.createDefaultModel();
+        if (enabled) {
+            Resource thisPageAddress = pageFiles.getAddress(pageNumber);
+            paginationInfo.add(thisPageAddress, RDF.type, NS4.PagedCollection);
+            paginationInfo.add(thisPageAddress, NS4.firstPage, pageFiles.getAddress(1));
+            if (pageNumber < numberOfPages)
+                paginationInfo.add(thisPageAddress, NS4.nextPage, pageFiles.getAddress(pageNumber + 1));
+            paginationInfo.add(thisPageAddress, NS4.lastPage, pageFiles.getAddress(Math.max(numberOfPages, 1)));
+            paginationInfo.add(thisPageAddress, NS4.itemsPerPage, ResourceFactory.createTypedLiteral(itemsPerPage));
+            paginationInfo.add(thisPageAddress, NS4.totalItems, ResourceFactory.createTypedLiteral(totalNumberOfDataSets));
+        }
+        return paginationInfo;
+    }
+
+    /**
+     * Reads a page that is kept from the previous dump and writes it again with the given pagination info.
+     */
+    void rewrite(PageFiles pageFiles, int pageNumber, Model paginationInfo) throws IOException {
+        Model model = pageFiles.read(pageNumber);
+        //the page may have been written with another address, e.g. by a shard
+        for (Resource pageAddress : model.listSubjectsWithProperty(RDF.type, NS4.PagedCollection).toList())
+            model.removeAll(pageAddress, null, null);
+        try (PageWriter page = pageFiles.createWriter(pageNumber, prefixes)) {
+            page.add(paginationInfo);
+            page.add(model);
+            page.finish();
+        }
+    }
+
+    /**
+     * Puts the pagination info in front of the pages of a dump with a page budget, it depends on the number of
+     * pages, which is only known at the end.
+     *
+     * @param itemsOfPages number of dataSets of every page
+     */
+    void prepend(PageFiles pageFiles, List<Long> itemsOfPages) throws IOException {
+        if (!enabled)
+            return;
+        int numberOfPages = itemsOfPages.size();
+        long totalItems = 0;
+        for (long items : itemsOfPages)
+            totalItems += items;
+        for (int pageNumber = 1; pageNumber <= numberOfPages; pageNumber++) {
+            Model header = ModelFactory.createDefaultModel();
+            Resource thisPageAddress = pageFiles.getAddress(pageNumber);
+            header.add(thisPageAddress, RDF.type, NS4.PagedCollection);
+            header.add(thisPageAddress, NS4.firstPage, pageFiles.getAddress(1));
+            if (pageNumber < numberOfPages)
+                header.add(thisPageAddress, NS4.nextPage, pageFiles.getAddress(pageNumber + 1));
+            header.add(thisPageAddress, NS4.lastPage, pageFiles.getAddress(numberOfPages));
+            header.add(thisPageAddress, NS4.itemsPerPage, ResourceFactory.createTypedLiteral(itemsOfPages.get(pageNumber - 1)));
+            header.add(thisPageAddress, NS4.totalItems, ResourceFactory.createTypedLiteral(totalItems));
+            pageFiles.prepend(pageNumber, header, prefixes);
+        }
+    }
+
+    /**
+     * Covers the triples of the pagination info, so a page is only rewritten if one of them changes.
+     */
+    static String getFingerprint(Model paginationInfo) {
+        List<String> triples = new ArrayList<>();
+        paginationInfo.getGraph().find().forEachRemaining(triple -> triples.add(FmtUtils.stringForNode(triple.getSubject())
+                + " " + FmtUtils.stringForNode(triple.getPredicate()) + " " + FmtUtils.stringForNode(triple.getObject())));
+        Collections.sort(triples);
+        return Fingerprints.sha256(String.join("\n", triples));
+    }
+}
@@ -0,0 +1,190 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Output of dumper.layout=portals: every portal has the paged collection of its dataSets in a folder named after
+ * the portal, and {@value #INDEX_FILE_NAME} lists the portals with their pages.
+ */
+class PortalLayout {
+    private static final Logger logger = LoggerFactory.getLogger(PortalLayout.class);
+
+    static final String INDEX_FILE_NAME = "index.ttl";
+
+    private final File folder;
+
+    private final String serverAddress;
+
+    private final OutputFormat format;
+
+    private final OutputCodec codec;
+
+    private final int compressionLevel;
+
+    private final Map<String, String> prefixes;
+
+    PortalLayout(File folder, String serverAddress, OutputFormat format, OutputCodec codec, int compressionLevel,
+                 Map<String, String> prefixes) {
+        this.folder = folder;
+        this.serverAddress = serverAddress;
+        this.format = format;
+        this.codec = codec;
+        this.compressionLevel = compressionLevel;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * The last path segment of the portal IRI, percent-encoded so it is a single valid file name: every character
+     * except ASCII letters, digits, '-', '_' and '.' is encoded, and so are all characters of "." and "..". An empty
+     * segment is "_".
+     *
+     * @return the name of the folder of the portal
+     */
+    String getName(Resource portal) {
+        String portalName = Dumper.getPortalName(portal);
+        if (portalName.isEmpty())
+            return "_";
+        boolean dotsOnly = portalName.equals(".") || portalName.equals("..");
+        StringBuilder name = new StringBuilder();
+        for (byte b : portalName.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if (!dotsOnly && (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '-' || c == '_' || c == '.'))
+                name.append(c);
+            else
+                name.append('%').append(String.format("%02X", b & 0xFF));
+        }
+        return name.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name is not a single file name in the output folder
+     */
+    File getFolder(String name) {
+        File portalFolder = new File(folder, name);
+        if (name.isEmpty() || name.equals(".") || name.equals("..")
+                || !folder.getAbsoluteFile().equals(portalFolder.getAbsoluteFile().getParentFile()))
+            throw new IllegalArgumentException("The portal folder " + name + " is not in " + folder);
+        return portalFolder;
+    }
+
+    /**
+     * @return the address of the portal folder, the file server decodes the path, so '%' of the name is encoded
+     */
+    private String getAddress(String name) {
+        return serverAddress + "/" + name.replace("%", "%25");
+    }
+
+    /**
+     * @return the pages of the portal, its folder is created if it does not exist
+     */
+    PageFiles getPageFiles(String name) {
+        File portalFolder = getFolder(name);
+        if (!portalFolder.isDirectory() && !portalFolder.mkdirs())
+            logger.warn("Cannot create the folder {}", portalFolder);
+        return new PageFiles(portalFolder, getAddress(name), format, codec, compressionLevel);
+    }
+
+    /**
+     * @return the names of the portals of the current index, empty if there is no (readable) index
+     */
+    Set<String> getIndexedNames() {
+        Set<String> names = new HashSet<>();
+        File indexFile = new File(folder, INDEX_FILE_NAME);
+        if (!indexFile.isFile())
+            return names;
+        try {
+            Model index = RDFDataMgr.loadModel(indexFile.getPath(), Lang.TURTLE);
+            index.listObjectsOfProperty(DCTerms.identifier).forEachRemaining(identifier -> {
+                String name = identifier.asLiteral().getString();
+                //an index edited by hand must not name folders outside of the output folder
+                if (name.matches("[A-Za-z0-9._%-]+") && !name.equals(".") && !name.equals(".."))
+                    names.add(name);
+                else
+                    logger.warn("{} of the index {} is not a portal folder, it is ignored", name, indexFile);
+            });
+        } catch (Exception e) {
+            logger.warn("Cannot read the index {}, the folders of removed portals are kept, {}", indexFile, e);
+        }
+        return names;
+    }
+
+    /**
+     * Deletes the pages and the folder of a portal that is not in the catalog anymore. Other files than the pages
+     * and the given ones are kept, and so is the folder then.
+     *
+     * @param otherFiles names of further files the dump writes into the folder
+     */
+    void delete(String name, String... otherFiles) throws IOException {
+        File portalFolder = getFolder(name);
+        PageFiles pageFiles = new PageFiles(portalFolder, getAddress(name), format, codec, compressionLevel);
+        for (int pageNumber = 1; Files.deleteIfExists(pageFiles.getFile(pageNumber).toPath()); pageNumber++)
+            logger.debug("page {} of the removed portal {} is deleted", pageNumber, name);
+        for (String otherFile : otherFiles)
+            Files.deleteIfExists(new File(portalFolder, otherFile).toPath());
+        if (portalFolder.delete())
+            logger.info("the folder of the removed portal {} is deleted", name);
+        else if (portalFolder.exists())
+            logger.warn("the folder {} of the removed portal is not empty, it is kept", portalFolder);
+    }
+
+    /**
+     * Writes the index of the portals, it replaces the previous one when it is complete.
+     *
+     * @param portals          the portals by name
+     * @param numberOfDataSets dataSets of every portal
+     * @param pagesOfPortals   written pages of every portal by name
+     * @param pageSize         dataSets of a fixed page, 0 => pages with a budget, the index has no itemsPerPage
+     */
+    void writeIndex(Map<String, Resource> portals, Map<Resource, Long> numberOfDataSets,
+                    Map<String, Integer> pagesOfPortals, int pageSize) throws IOException {
+        Model index = ModelFactory.createDefaultModel();
+        index.setNsPrefixes(prefixes);
+        index.setNsPrefix("hydra", NS4.NS);
+        for (Map.Entry<String, Integer> pagesOfPortal : pagesOfPortals.entrySet()) {
+            int pages = pagesOfPortal.getValue();
+            Resource portal = portals.get(pagesOfPortal.getKey());
+            PageFiles pageFiles = getPageFiles(pagesOfPortal.getKey());
+            index.add(portal, RDF.type, DCAT.Catalog);
+            index.add(portal, DCTerms.identifier, pagesOfPortal.getKey());
+            index.add(portal, NS4.totalItems, ResourceFactory.createTypedLiteral(numberOfDataSets.get(portal)));
+            if (pageSize > 0)
+                index.add(portal, NS4.itemsPerPage, ResourceFactory.createTypedLiteral(pageSize));
+            if (pages > 0) {
+                index.add(portal, NS4.firstPage, pageFiles.getAddress(1));
+                index.add(portal, NS4.lastPage, pageFiles.getAddress(pages));
+            }
+            for (int pageNumber = 1; pageNumber <= pages; pageNumber++)
+                index.add(portal, DCTerms.hasPart, pageFiles.getAddress(pageNumber));
+        }
+
+        File indexFile = new File(folder, INDEX_FILE_NAME);
+        File temporaryFile = new File(folder, INDEX_FILE_NAME + ".tmp");
+        try (OutputStream out = new FileOutputStream(temporaryFile)) {
+            RDFDataMgr.write(out, index, Lang.TURTLE);
+        }
+        Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+}
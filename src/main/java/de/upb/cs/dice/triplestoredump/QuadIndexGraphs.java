@@ -0,0 +1,82 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the graph of a dataSet straight from the quad indexes of a local dataset. It has the same triples as the
+ * CONSTRUCT of {@link Dumper#getAllPredicatesObjectsPublisherDistributions(Resource)}: every triple of the dataSet
+ * in a named graph and the triples of its objects in the same graph, without building and evaluating a query.
+ */
+class QuadIndexGraphs {
+
+    private final Dataset dataset;
+
+    QuadIndexGraphs(Dataset dataset) {
+        this.dataset = dataset;
+    }
+
+    /**
+     * @param scopeGraphs graphs of the dump, empty => every named graph
+     */
+    Model get(Resource dataSet, List<Resource> scopeGraphs) {
+        return Txn.calculateRead(dataset, () -> find(dataset.asDatasetGraph(), dataSet, scopeGraphs));
+    }
+
+    /**
+     * @param scopeGraphs graphs of the dump, empty => every named graph
+     * @return the graph of every dataSet that has at least one triple
+     */
+    Map<Resource, Model> get(List<Resource> dataSets, List<Resource> scopeGraphs) {
+        return Txn.calculateRead(dataset, () -> {
+            DatasetGraph datasetGraph = dataset.asDatasetGraph();
+            Map<Resource, Model> models = new HashMap<>();
+            for (Resource dataSet : dataSets) {
+                Model model = find(datasetGraph, dataSet, scopeGraphs);
+                if (!model.isEmpty())
+                    models.put(dataSet, model);
+            }
+            return models;
+        });
+    }
+
+    /**
+     * @param dataSetGraphs the graphs the dataSet is looked up in, empty => every named graph
+     */
+    private static Model find(DatasetGraph datasetGraph, Resource dataSet, List<Resource> dataSetGraphs) {
+        Model model = ModelFactory.createDefaultModel();
+        if (dataSetGraphs.isEmpty()) {
+            find(datasetGraph, dataSet, Node.ANY, model.getGraph());
+        } else {
+            for (Resource dataSetGraph : dataSetGraphs)
+                find(datasetGraph, dataSet, dataSetGraph.asNode(), model.getGraph());
+        }
+        return model;
+    }
+
+    private static void find(DatasetGraph datasetGraph, Resource dataSet, Node dataSetGraph, Graph graph) {
+        Iterator<Quad> quads = datasetGraph.findNG(dataSetGraph, dataSet.asNode(), Node.ANY, Node.ANY);
+        while (quads.hasNext()) {
+            Quad quad = quads.next();
+            graph.add(quad.asTriple());
+            Node object = quad.getObject();
+            if (object.isLiteral())
+                continue;
+            Iterator<Quad> objectQuads = datasetGraph.find(quad.getGraph(), object, Node.ANY, Node.ANY);
+            while (objectQuads.hasNext())
+                graph.add(objectQuads.next().asTriple());
+        }
+    }
+}
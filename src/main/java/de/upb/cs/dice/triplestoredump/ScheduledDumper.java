@@ -0,0 +1,30 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Submits a dump on the cron expression of info.dumper.scheduler, only active if the property is set.
+ */
+@Component
+@ConditionalOnProperty("info.dumper.scheduler")
+public class ScheduledDumper {
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledDumper.class);
+
+    private final DumpJobService dumpJobService;
+
+    @Autowired
+    public ScheduledDumper(DumpJobService dumpJobService) {
+        this.dumpJobService = dumpJobService;
+    }
+
+    @Scheduled(cron = "${info.dumper.scheduler}")
+    public void scheduledDumping() {
+        if (!dumpJobService.submit().isPresent())
+            logger.warn("a merge is running, the scheduled dump is skipped");
+    }
+}
@@ -0,0 +1,128 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.rdf.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Copies the pages written by the shards into the output folder, so they form one collection. Every page must
+ * be in exactly one shard manifest. The pagination info of a page is only rewritten if it differs from the one
+ * of the merged collection, e.g. because the shards used another internalFileServer.address.
+ * The pages of the shards are only deleted after the merged manifest is saved, so a merge that fails can be
+ * repeated.
+ */
+class ShardMerge {
+    private static final Logger logger = LoggerFactory.getLogger(ShardMerge.class);
+
+    private final PageFiles pageFiles;
+
+    private final PaginationInfo paginationInfo;
+
+    private final int pageSize;
+
+    /**
+     * @param pageFiles the pages of the output folder
+     */
+    ShardMerge(PageFiles pageFiles, PaginationInfo paginationInfo, int pageSize) {
+        this.pageFiles = pageFiles;
+        this.paginationInfo = paginationInfo;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @param shardFolders output folders of all shards
+     * @return the number of pages of the merged collection
+     */
+    int merge(List<File> shardFolders, File manifestFile, DumpJob job) throws Exception {
+        long totalNumberOfDataSets = -1;
+        int numberOfPages = -1;
+        Map<Integer, File> shardOfPage = new HashMap<>();
+        Map<File, DumpManifest> manifests = new HashMap<>();
+        for (File shardFolder : shardFolders) {
+            File shardManifestFile = new File(shardFolder, DumpManifest.FILE_NAME);
+            if (!shardManifestFile.isFile()) {
+                throw new Exception("There is no manifest in the shard " + shardFolder);
+            }
+            DumpManifest manifest = DumpManifest.load(shardManifestFile);
+            if (totalNumberOfDataSets != -1 && (totalNumberOfDataSets != manifest.getTotalNumberOfDataSets()
+                    || numberOfPages != manifest.getNumberOfPages())) {
+                throw new Exception("The shards dumped different catalogs, " + totalNumberOfDataSets + " dataSets in "
+                        + numberOfPages + " pages and " + manifest.getTotalNumberOfDataSets() + " dataSets in "
+                        + manifest.getNumberOfPages() + " pages");
+            }
+            DumpManifest firstManifest = manifests.isEmpty() ? null : manifests.values().iterator().next();
+            if (firstManifest != null && !firstManifest.getSettings().equals(manifest.getSettings())) {
+                throw new Exception("The shards were dumped with different settings, " + firstManifest.getSettings()
+                        + " and " + manifest.getSettings());
+            }
+            totalNumberOfDataSets = manifest.getTotalNumberOfDataSets();
+            numberOfPages = manifest.getNumberOfPages();
+            manifests.put(shardFolder, manifest);
+            for (Integer pageNumber : manifest.getPages().keySet()) {
+                File otherShard = shardOfPage.put(pageNumber, shardFolder);
+                if (otherShard != null) {
+                    throw new Exception("page " + pageNumber + " is in the shards " + otherShard + " and " + shardFolder);
+                }
+            }
+        }
+        if (shardOfPage.size() != numberOfPages) {
+            throw new Exception("The shards have " + shardOfPage.size() + " of " + numberOfPages + " pages");
+        }
+        job.setTotals(numberOfPages, totalNumberOfDataSets);
+
+        DumpManifest merged = new DumpManifest();
+        merged.setSettings(manifests.get(shardFolders.get(0)).getSettings());
+        merged.setTotalNumberOfDataSets(totalNumberOfDataSets);
+        merged.setNumberOfPages(numberOfPages);
+        //every shard has the page of every dataSet
+        merged.setPageOfDataSet(manifests.get(shardFolders.get(0)).getPageOfDataSet());
+        long[] itemsOfPages = new long[numberOfPages + 1];
+        for (int pageNumber : merged.getPageOfDataSet().values())
+            itemsOfPages[pageNumber]++;
+        List<File> copiedPages = new ArrayList<>();
+        for (int pageNumber = 1; pageNumber <= numberOfPages; pageNumber++) {
+            if (job.isCancelRequested()) {
+                throw new CancellationException("merge " + job.getId() + " is cancelled");
+            }
+            File shardFolder = shardOfPage.get(pageNumber);
+            File target = pageFiles.getFile(pageNumber);
+            File source = new File(shardFolder, pageFiles.getFileName(pageNumber));
+            if (!source.getCanonicalFile().equals(target.getCanonicalFile())) {
+                //copied to a temporary file first, so the target is never a half copied page
+                File temporaryFile = new File(target.getParentFile(), target.getName() + ".tmp");
+                Files.copy(source.toPath(), temporaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporaryFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                copiedPages.add(source);
+            }
+
+            DumpManifest.Page page = manifests.get(shardFolder).getPages().get(pageNumber);
+            //incremental shards assigned the dataSets to the pages, the others paged by OFFSET
+            boolean assigned = !merged.getPageOfDataSet().isEmpty();
+            Model header = paginationInfo.get(pageFiles, pageNumber, numberOfPages, totalNumberOfDataSets,
+                    assigned ? itemsOfPages[pageNumber] : pageSize);
+            String headerFingerprint = PaginationInfo.getFingerprint(header);
+            if (!headerFingerprint.equals(page.getHeaderFingerprint())) {
+                paginationInfo.rewrite(pageFiles, pageNumber, header);
+                logger.debug("pagination info of page {} is rewritten", pageNumber);
+            }
+            merged.getPages().put(pageNumber, new DumpManifest.Page(page.getContentFingerprint(), headerFingerprint));
+            job.pageDone(assigned ? itemsOfPages[pageNumber] :
+                    Math.min(totalNumberOfDataSets - (long) (pageNumber - 1) * pageSize, pageSize), target.length());
+        }
+        merged.save(manifestFile);
+        for (File copiedPage : copiedPages)
+            Files.deleteIfExists(copiedPage.toPath());
+        logger.info("{} pages of {} shards are merged", numberOfPages, shardFolders.size());
+        return numberOfPages;
+    }
+}
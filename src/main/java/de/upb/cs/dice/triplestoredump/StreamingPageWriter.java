@@ -0,0 +1,61 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Writes every triple to the file as soon as it is added, so only the dataSet graph that is being written has to
+ * be kept in memory. Triples that occur in more than one dataSet graph are written more than once.
+ */
+public class StreamingPageWriter implements PageWriter {
+
+    private final OutputStream out;
+
+    private final StreamRDF stream;
+
+    private boolean finished;
+
+    public StreamingPageWriter(OutputStream out, RDFFormat format, Map<String, String> prefixes) {
+        this.out = out;
+        stream = StreamRDFWriter.getWriterStream(out, format);
+        stream.start();
+        prefixes.forEach(stream::prefix);
+    }
+
+    @Override
+    public void add(Resource subject, Property predicate, RDFNode object) {
+        stream.triple(Triple.create(subject.asNode(), predicate.asNode(), object.asNode()));
+    }
+
+    @Override
+    public void add(Model graph) {
+        graph.getGraph().find(Node.ANY, Node.ANY, Node.ANY).forEachRemaining(stream::triple);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        finished = true;
+        try {
+            stream.finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!finished)
+            out.close();
+    }
+}
@@ -0,0 +1,111 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Resource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Numbers the dataSets whose title is used more than once (CKAN specific, title in the CKAN is the key).
+ * A dataSet gets the number n if it is the n-th dataSet with the same title in its portal, in the order of the
+ * dataSet IRIs. That is the order of the pages, so the numbers are the same as counting while dumping.
+ */
+public class TitleIndex {
+
+    private final SortedMap<String, Entry> entries = new TreeMap<>();
+
+    private final Map<List<String>, InfoDataSet> counters = new LinkedHashMap<>();
+
+    private boolean numbered;
+
+    /**
+     * If a dataSet has more than one repetitive title, the one with the smallest lexical form is used.
+     */
+    public void add(Resource dataSet, Literal title, Resource portal, String portalName) {
+        if (numbered)
+            throw new IllegalStateException("dataSets cannot be added after numbering");
+        if (!dataSet.isURIResource())
+            return;
+        Entry entry = entries.get(dataSet.getURI());
+        if (entry == null || title.getLexicalForm().compareTo(entry.title.getLexicalForm()) < 0)
+            entries.put(dataSet.getURI(), new Entry(title, portal, portalName));
+    }
+
+    public TitleIndex number() {
+        for (Entry entry : entries.values()) {
+            String title = entry.title.getString();
+            InfoDataSet infoDataSet = counters.computeIfAbsent(Arrays.asList(title, entry.portalName),
+                    k -> new InfoDataSet(title, entry.portalName, 0));
+            infoDataSet.setCnt(infoDataSet.getCnt() + 1);
+            entry.cnt = infoDataSet.getCnt();
+        }
+        numbered = true;
+        return this;
+    }
+
+    /**
+     * @return null if the title of the dataSet is not repetitive
+     */
+    public Entry get(Resource dataSet) {
+        return dataSet.isURIResource() ? entries.get(dataSet.getURI()) : null;
+    }
+
+    /**
+     * @return a hash of all generated titles, to notice that the numbering changed
+     */
+    public String getFingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                digest.update(entry.getValue().getGeneratedTitle().getBytes(StandardCharsets.UTF_8));
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of dataSets for every repetitive (title, portal)
+     */
+    public Collection<InfoDataSet> getCounters() {
+        return counters.values();
+    }
+
+    public static class Entry {
+        private final Literal title;
+        private final Resource portal;
+        private final String portalName;
+        private int cnt;
+
+        private Entry(Literal title, Resource portal, String portalName) {
+            this.title = title;
+            this.portal = portal;
+            this.portalName = portalName;
+        }
+
+        public Literal getTitle() {
+            return title;
+        }
+
+        public Resource getPortal() {
+            return portal;
+        }
+
+        public int getCnt() {
+            return cnt;
+        }
+
+        public String getGeneratedTitle() {
+            return String.format("%s (%s_%d)", title.getString(), portal, cnt);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/dump/traces")
+public class TraceController {
+
+    private final DumpTracer dumpTracer;
+
+    @Autowired
+    public TraceController(DumpTracer dumpTracer) {
+        this.dumpTracer = dumpTracer;
+    }
+
+    /**
+     * The buffered spans, oldest first.
+     *
+     * @param kind chunk or page, empty => all
+     */
+    @GetMapping
+    public List<DumpTracer.Span> getSpans(@RequestParam(required = false) String kind) {
+        List<DumpTracer.Span> spans = dumpTracer.getSpans();
+        if (kind == null || kind.isEmpty())
+            return spans;
+        List<DumpTracer.Span> ret = new ArrayList<>();
+        for (DumpTracer.Span span : spans)
+            if (span.getKind().equals(kind))
+                ret.add(span);
+        return ret;
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> clear() {
+        dumpTracer.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
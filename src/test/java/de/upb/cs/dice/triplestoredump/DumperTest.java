@@ -0,0 +1,130 @@
+package de.upb.cs.dice.triplestoredump;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aksw.jena_sparql_api.core.QueryExecutionFactoryDataset;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The graphs {@link Dumper#fetchChunk(List)} fetches for a chunk of dataSets in one query against the ones it
+ * fetches for every dataSet alone, and with the description cache against the ones it fetches without.
+ */
+public class DumperTest {
+
+    private static final String BASE = SyntheticCatalog.BASE;
+
+    private static final Property CONTACT_POINT = ResourceFactory.createProperty(DCAT.NS, "contactPoint");
+
+    private static final Property FN = ResourceFactory.createProperty("http://www.w3.org/2006/vcard/ns#", "fn");
+
+    private Dataset dataset;
+
+    @Before
+    public void setUp() {
+        dataset = SyntheticCatalog.create(30, 2, 4, 3);
+        Model graph0 = dataset.getNamedModel(BASE + "graph/0");
+        Model graph1 = dataset.getNamedModel(BASE + "graph/1");
+        //blank node objects, the contact point has triples of its own
+        for (int i = 0; i < 30; i += 7) {
+            Model graph = dataset.getNamedModel(BASE + "graph/" + i % 3);
+            Resource contactPoint = graph.createResource();
+            graph.add(dataSet(i), CONTACT_POINT, contactPoint);
+            graph.add(contactPoint, FN, "contact of " + i);
+        }
+        Resource publisher = graph1.createResource();
+        graph1.add(dataSet(4), DCTerms.publisher, publisher);
+        graph1.add(publisher, RDF.type, ResourceFactory.createResource("http://xmlns.com/foaf/0.1/Organization"));
+        //dataSet 1 of portal1 has triples in graph/0 too
+        graph0.add(dataSet(1), DCTerms.description, "described in another graph");
+        //a dataSet without portal
+        Resource orphan = graph0.createResource(BASE + "orphan");
+        graph0.add(orphan, RDF.type, DCAT.Dataset);
+        graph0.add(orphan, DCTerms.title, "orphan");
+    }
+
+    @Test
+    public void fetchesTheSameGraphsInOneQuery() throws Exception {
+        Dumper dumper = createDumper();
+        List<Resource> dataSets = dumper.getListOfDataSets(0, Integer.MAX_VALUE);
+        assertTrue(dataSets.contains(ResourceFactory.createResource(BASE + "orphan")));
+
+        List<DataSetGraph> batched = dumper.fetchChunk(dataSets);
+        List<DataSetGraph> perDataSet = new ArrayList<>();
+        for (Resource dataSet : dataSets)
+            perDataSet.addAll(dumper.fetchChunk(Collections.singletonList(dataSet)));
+
+        assertEquals(30, perDataSet.size());
+        assertGraphsEqual(perDataSet, batched);
+    }
+
+    @Test
+    public void cacheGivesTheSameGraphs() throws Exception {
+        Dumper dumper = createDumper();
+        List<Resource> dataSets = dumper.getListOfDataSets(0, Integer.MAX_VALUE);
+        List<DataSetGraph> expected = dumper.fetchChunk(dataSets);
+
+        Dumper cachingDumper = createDumper();
+        ReflectionTestUtils.setField(cachingDumper, "cacheMaxTriples", 10000L);
+        ReflectionTestUtils.invokeMethod(cachingDumper, "initialCaches");
+        assertGraphsEqual(expected, cachingDumper.fetchChunk(dataSets));
+        //the second time the publishers are taken from the cache
+        List<DataSetGraph> actual = cachingDumper.fetchChunk(dataSets);
+        assertGraphsEqual(expected, actual);
+
+        @SuppressWarnings("unchecked")
+        Cache<List<Node>, List<Triple>> descriptions =
+                (Cache<List<Node>, List<Triple>>) ReflectionTestUtils.getField(cachingDumper, "descriptions");
+        assertTrue(descriptions.stats().hitCount() > 0);
+        //blank nodes are not shared, they are described inline and never cached
+        for (List<Node> object : descriptions.asMap().keySet())
+            assertTrue(object.get(1).isURI());
+        Model graph = actual.stream().filter(dataSetGraph -> dataSetGraph.getDataSet().equals(dataSet(4)))
+                .findFirst().orElseThrow(AssertionError::new).getGraph();
+        assertTrue(graph.listObjectsOfProperty(dataSet(4), DCTerms.publisher).toList().stream()
+                .anyMatch(object -> object.isAnon() && graph.contains(object.asResource(), RDF.type)));
+    }
+
+    private Dumper createDumper() {
+        return new Dumper(null, new DumperMetrics(new SimpleMeterRegistry()), new DumpTracer(0, 1),
+                new QueryExecutionFactoryDataset(dataset));
+    }
+
+    /**
+     * Same dataSets in the same order with the same portal and isomorphic graphs, blank nodes have other labels in
+     * every query.
+     */
+    private static void assertGraphsEqual(List<DataSetGraph> expected, List<DataSetGraph> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Resource dataSet = expected.get(i).getDataSet();
+            assertEquals(dataSet, actual.get(i).getDataSet());
+            assertEquals(expected.get(i).getPortal(), actual.get(i).getPortal());
+            assertTrue("graph of " + dataSet, expected.get(i).getGraph().isIsomorphicWith(actual.get(i).getGraph()));
+            assertFalse(expected.get(i).getGraph().isEmpty());
+        }
+    }
+
+    private static Resource dataSet(int i) {
+        return ResourceFactory.createResource(String.format("%sdataset/%08d", BASE, i));
+    }
+}
@@ -0,0 +1,60 @@
+package de.upb.cs.dice.triplestoredump;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+
+/**
+ * In-memory stand-in for the CIVET triple store: one named graph per portal with the same DCAT shape the dumper
+ * queries (portal dcat:dataset dataSet, dataSet with title, modified, publisher and distributions).
+ */
+class SyntheticCatalog {
+
+    static final String BASE = "http://example.org/";
+
+    private SyntheticCatalog() {
+    }
+
+    /**
+     * @param duplicateTitles number of dataSets whose title is shared with exactly one other dataSet of the catalog
+     */
+    static Dataset create(int dataSets, int distributions, int duplicateTitles, int portals) {
+        Dataset dataset = DatasetFactory.createGeneral();
+        Model[] graphs = new Model[portals];
+        Resource[] portalResources = new Resource[portals];
+        for (int p = 0; p < portals; p++) {
+            graphs[p] = dataset.getNamedModel(BASE + "graph/" + p);
+            portalResources[p] = graphs[p].createResource(BASE + "portal/portal" + p);
+            graphs[p].add(portalResources[p], RDF.type, DCAT.Catalog);
+        }
+
+        for (int i = 0; i < dataSets; i++) {
+            Model graph = graphs[i % portals];
+            Resource dataSet = graph.createResource(String.format("%sdataset/%08d", BASE, i));
+            String title = i < duplicateTitles ? "shared title " + i / 2 : "title " + i;
+            graph.add(portalResources[i % portals], DCAT.dataset, dataSet);
+            graph.add(dataSet, RDF.type, DCAT.Dataset);
+            graph.add(dataSet, DCTerms.title, title);
+            graph.add(dataSet, DCTerms.description, "description of " + title);
+            graph.add(dataSet, DCTerms.modified, ResourceFactory.createTypedLiteral(
+                    String.format("2018-12-%02dT00:00:00", i % 28 + 1), XSDDatatype.XSDdateTime));
+            Resource publisher = graph.createResource(BASE + "publisher/" + i % 100);
+            graph.add(dataSet, DCTerms.publisher, publisher);
+            graph.add(publisher, RDF.type, ResourceFactory.createResource("http://xmlns.com/foaf/0.1/Organization"));
+            for (int d = 0; d < distributions; d++) {
+                Resource distribution = graph.createResource(String.format("%sdistribution/%08d-%d", BASE, i, d));
+                graph.add(dataSet, DCAT.distribution, distribution);
+                graph.add(distribution, RDF.type, DCAT.Distribution);
+                graph.add(distribution, DCAT.accessURL, graph.createResource(BASE + "files/" + i + "/" + d + ".csv"));
+                graph.add(distribution, DCTerms.format, "CSV");
+            }
+        }
+        return dataset;
+    }
+}
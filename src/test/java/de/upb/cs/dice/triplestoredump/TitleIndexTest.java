@@ -0,0 +1,187 @@
+package de.upb.cs.dice.triplestoredump;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aksw.jena_sparql_api.core.QueryExecutionFactoryDataset;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The {@link TitleIndex} of {@link Dumper#getTitleIndex()} against the counting the dump did before it: the dataSets
+ * in listing order, one COUNT query per title and a running counter per (title, portal name).
+ * The counting before the index took whichever title Jena returned first for a dataSet with more than one title, the
+ * index takes the smallest repetitive one, so the comparison is on dataSets with one title and the dataSets with
+ * more titles have a test of their own.
+ */
+public class TitleIndexTest {
+
+    private static final String BASE = SyntheticCatalog.BASE;
+
+    private Dataset dataset;
+
+    private Dumper dumper;
+
+    @Before
+    public void setUp() {
+        //dataSets 0 - 39 share their title in pairs, the two of a pair are in different portals
+        dataset = SyntheticCatalog.create(120, 1, 40, 3);
+        Model portal0 = dataset.getNamedModel(BASE + "graph/0");
+        Model portal1 = dataset.getNamedModel(BASE + "graph/1");
+        //dataSet 42 is in portal0, three more dataSets of portal0 and one of portal1 have its title
+        addDataSet(portal0, "portal0", "extra/a", "title 42");
+        addDataSet(portal0, "portal0", "extra/b", "title 42");
+        addDataSet(portal0, "portal0", "extra/c", "title 42");
+        addDataSet(portal1, "portal1", "extra/d", "title 42");
+        //a dataSet in two portals is not numbered, but its title counts
+        addDataSet(portal0, "portal0", "extra/e", "title 42");
+        portal1.add(portal1.createResource(BASE + "portal/portal1"), DCAT.dataset, portal1.createResource(BASE + "extra/e"));
+        //a dataSet linked twice by the same portal in two graphs has two portal rows, it is not numbered either
+        addDataSet(portal0, "portal0", "extra/f", "title 42");
+        portal1.add(portal1.createResource(BASE + "portal/portal0"), DCAT.dataset, portal1.createResource(BASE + "extra/f"));
+
+        dumper = new Dumper(null, new DumperMetrics(new SimpleMeterRegistry()), new DumpTracer(0, 1),
+                new QueryExecutionFactoryDataset(dataset));
+    }
+
+    @Test
+    public void numbersLikeCountingPerDataSet() {
+        Map<List<String>, Integer> expectedCounters = new HashMap<>();
+        Map<String, String> expected = countPerDataSet(expectedCounters);
+
+        TitleIndex titleIndex = dumper.getTitleIndex();
+        Map<String, String> actual = new HashMap<>();
+        for (Resource dataSet : dumper.getListOfDataSets(0, Integer.MAX_VALUE)) {
+            TitleIndex.Entry entry = titleIndex.get(dataSet);
+            if (entry != null)
+                actual.put(dataSet.getURI(), entry.getGeneratedTitle());
+        }
+        Map<List<String>, Integer> actualCounters = new HashMap<>();
+        for (InfoDataSet counter : titleIndex.getCounters())
+            actualCounters.put(Arrays.asList(counter.getTitle(), counter.getPortal()), counter.getCnt());
+
+        assertEquals(expected, actual);
+        assertEquals(expectedCounters, actualCounters);
+    }
+
+    @Test
+    public void coversTheEdgeCases() {
+        TitleIndex titleIndex = dumper.getTitleIndex();
+        String portal0 = BASE + "portal/portal0";
+        //same title in portal0 and portal1, numbered per portal
+        assertEquals("title 42 (" + portal0 + "_1)", titleIndex.get(dataSet("dataset/00000042")).getGeneratedTitle());
+        assertEquals("title 42 (" + portal0 + "_4)", titleIndex.get(dataSet("extra/c")).getGeneratedTitle());
+        assertEquals("title 42 (" + BASE + "portal/portal1_1)", titleIndex.get(dataSet("extra/d")).getGeneratedTitle());
+        assertNull(titleIndex.get(dataSet("extra/e")));
+        assertNull(titleIndex.get(dataSet("extra/f")));
+        assertNull(titleIndex.get(dataSet("dataset/00000050")));
+    }
+
+    /**
+     * Changed behavior: a dataSet with more than one title is numbered under its smallest repetitive title, the
+     * counting before the index took whichever title Jena returned first.
+     */
+    @Test
+    public void numbersTheSmallestRepetitiveTitle() {
+        Model portal0 = dataset.getNamedModel(BASE + "graph/0");
+        //dataSet 45 has a unique and a repetitive title, dataSet 63 two repetitive ones
+        portal0.add(dataSet("dataset/00000045"), DCTerms.title, "shared title 0");
+        portal0.add(dataSet("dataset/00000063"), DCTerms.title, "title 42");
+        portal0.add(dataSet("dataset/00000063"), DCTerms.title, "shared title 1");
+
+        TitleIndex titleIndex = dumper.getTitleIndex();
+        String portal0Iri = BASE + "portal/portal0";
+        //dataSet 0 is the first with "shared title 0" in portal0
+        assertEquals("shared title 0 (" + portal0Iri + "_2)", titleIndex.get(dataSet("dataset/00000045")).getGeneratedTitle());
+        //dataSet 3 is the first with "shared title 1" in portal0
+        assertEquals("shared title 1 (" + portal0Iri + "_2)", titleIndex.get(dataSet("dataset/00000063")).getGeneratedTitle());
+        //dataSet 63 does not take a number of "title 42"
+        assertEquals("title 42 (" + portal0Iri + "_4)", titleIndex.get(dataSet("extra/c")).getGeneratedTitle());
+    }
+
+    /**
+     * The counting before the title index, query by query: the portal rows of the dataSet, which must be exactly
+     * one, the title of its graph, the number of dataSets with that title and the counter of (title, portal name).
+     *
+     * @param counters receives the last number of every (title, portal name)
+     * @return the generated title of every numbered dataSet
+     */
+    private Map<String, String> countPerDataSet(Map<List<String>, Integer> counters) {
+        Map<String, String> generatedTitles = new HashMap<>();
+        for (Resource dataSet : dumper.getListOfDataSets(0, Integer.MAX_VALUE)) {
+            List<Resource> portals = new ArrayList<>();
+            select("SELECT ?portal WHERE { GRAPH ?g { ?portal dcat:dataset ?dataSet . } }", "dataSet", dataSet,
+                    solution -> portals.add(solution.getResource("portal")));
+            if (portals.size() != 1)
+                continue;
+            Model dataSetGraph = construct("CONSTRUCT { ?dataSet dct:title ?title } WHERE { GRAPH ?g { ?dataSet dct:title ?title . } }",
+                    "dataSet", dataSet);
+            Literal title = dataSetGraph.getRequiredProperty(dataSet, DCTerms.title).getLiteral();
+            long[] count = new long[1];
+            select("SELECT (COUNT(DISTINCT ?dataSet) AS ?num) WHERE { GRAPH ?g { ?dataSet dct:title ?title . } }",
+                    "title", title, solution -> count[0] = solution.getLiteral("num").getLong());
+            if (count[0] <= 1)
+                continue;
+            Resource portal = portals.get(0);
+            String[] split = portal.getURI().split("/");
+            int cnt = counters.merge(Arrays.asList(title.getString(), split[split.length - 1]), 1, Integer::sum);
+            generatedTitles.put(dataSet.getURI(), String.format("%s (%s_%d)", title.getString(), portal, cnt));
+        }
+        return generatedTitles;
+    }
+
+    private Model construct(String query, String variable, RDFNode value) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString(query);
+        pss.setNsPrefix("dct", DCTerms.NS);
+        pss.setParam(variable, value);
+        try (QueryExecution queryExecution = QueryExecutionFactory.create(pss.asQuery(), dataset)) {
+            return queryExecution.execConstruct();
+        }
+    }
+
+    private void select(String query, String variable, RDFNode value,
+                        Consumer<QuerySolution> consumer) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString(query);
+        pss.setNsPrefix("dcat", DCAT.NS);
+        pss.setNsPrefix("dct", DCTerms.NS);
+        pss.setParam(variable, value);
+        try (QueryExecution queryExecution = QueryExecutionFactory.create(pss.asQuery(), dataset)) {
+            ResultSet results = queryExecution.execSelect();
+            while (results.hasNext())
+                consumer.accept(results.next());
+        }
+    }
+
+    private static void addDataSet(Model graph, String portal, String path, String title) {
+        Resource dataSet = graph.createResource(BASE + path);
+        graph.add(graph.createResource(BASE + "portal/" + portal), DCAT.dataset, dataSet);
+        graph.add(dataSet, RDF.type, DCAT.Dataset);
+        graph.add(dataSet, DCTerms.title, title);
+    }
+
+    private static Resource dataSet(String path) {
+        return ResourceFactory.createResource(BASE + path);
+    }
+}